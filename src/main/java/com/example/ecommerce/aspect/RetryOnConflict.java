@@ -0,0 +1,14 @@
+package com.example.ecommerce.aspect;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// runs the method again, in a new transaction, when it fails because of a concurrent update
+// (a stale @Version or a deadlock), see RetryOnConflictAspect
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+    int maxAttempts() default 5;
+}
@@ -0,0 +1,44 @@
+package com.example.ecommerce.aspect;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+@Aspect
+@Component
+// around the transaction interceptor (LOWEST_PRECEDENCE), so that each attempt is a new transaction
+// and the conflicts detected at the commit are retried too
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class RetryOnConflictAspect {
+
+    @Value("${retry-on-conflict.backoff-ms:20}")
+    private long backoffMillis;
+
+    @Around("@annotation(retryOnConflict)")
+    public Object retry(ProceedingJoinPoint joinPoint, RetryOnConflict retryOnConflict) throws Throwable {
+        // a method called inside a transaction is retried with the whole transaction by the outermost one
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= retryOnConflict.maxAttempts()) {
+                    throw new IllegalStateException("The request conflicted with other updates, please try again", e);
+                }
+                // random backoff, so that the conflicting requests don't meet again
+                Thread.sleep(ThreadLocalRandom.current().nextLong(backoffMillis * attempt + 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.ecommerce.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// the orders, their items and the notifications take their ids from sequences (tables on MySQL) instead of IDENTITY,
+// so that they can be inserted in JDBC batches. the sequences are created starting at 1,
+// they are moved after the ids already used by AUTO_INCREMENT before anything is inserted.
+// depends on the EntityManagerFactory, which creates the sequence tables
+@Component
+public class IdSequenceAligner {
+
+    public static final int ALLOCATION_SIZE = 50;
+
+    // sequence -> table
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "orders_seq", "orders",
+            "order_item_seq", "order_item",
+            "notification_seq", "notification");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdSequenceAligner(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void align() {
+        SEQUENCES.forEach((sequence, table) -> jdbcTemplate.update("UPDATE " + sequence + " SET next_val = GREATEST(next_val, " +
+                "(SELECT COALESCE(MAX(id), 0) + 1 + " + ALLOCATION_SIZE + " FROM " + table + "))"));
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.ecommerce.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// the amounts of the ledger were DOUBLE columns, they are DECIMAL(19,2) so that the balance checks and updates
+// are exact. ddl-auto=update doesn't change the type of an existing column, so the old ones are altered here,
+// once, before anything reads them. a DOUBLE written from an amount of hundredths converts to the same DECIMAL.
+// depends on the EntityManagerFactory, which creates the tables
+@Component
+public class LedgerColumnsMigration {
+
+    // table, column
+    private static final List<String[]> COLUMNS = List.of(
+            new String[]{"account_balance", "balance"},
+            new String[]{"transaction", "amount"},
+            new String[]{"transaction", "balance_after"});
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public LedgerColumnsMigration(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        for (String[] column : COLUMNS) {
+            Integer doubles = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.columns " +
+                    "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ? AND data_type = 'double'",
+                    Integer.class, column[0], column[1]);
+            if (doubles != null && doubles > 0) {
+                String nullable = column[1].equals("balance_after") ? "NULL" : "NOT NULL";
+                jdbcTemplate.execute("ALTER TABLE `" + column[0] + "` MODIFY `" + column[1] + "` DECIMAL(19,2) " + nullable);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.ecommerce.config;
+
+import com.example.ecommerce.service.cache.ResponseCache;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+// serves the anonymous GET /api/products and /api/product/{id} from the serialized bytes of a previous response,
+// with an ETag so that the clients can revalidate their copy with If-None-Match and get a 304 without body.
+// runs right after the CorsFilter, before the security filters
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    private final ResponseCache responseCache;
+    private final boolean enabled;
+
+    public ResponseCacheFilter(ResponseCache responseCache, @Value("${response-cache.enabled:true}") boolean enabled) {
+        this.responseCache = responseCache;
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return !enabled
+                || !"GET".equals(request.getMethod())
+                || request.getHeader(HttpHeaders.AUTHORIZATION) != null // only the anonymous requests
+                || !(path.equals(ResponseCache.PRODUCTS_PATH) || path.startsWith(ResponseCache.PRODUCT_PATH));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        String key = cacheKey(request);
+        ResponseCache.Entry entry = responseCache.get(key);
+        if (entry != null) {
+            writeEntry(request, response, entry);
+            return;
+        }
+
+        long generation = responseCache.getGeneration();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+        byte[] body = wrapper.getContentAsByteArray();
+        entry = new ResponseCache.Entry(body, wrapper.getContentType(), "\"0" + DigestUtils.md5DigestAsHex(body) + "\"");
+        responseCache.put(key, entry, generation);
+
+        // the body has not been written to the response yet
+        wrapper.resetBuffer();
+        writeEntry(request, wrapper, entry);
+        wrapper.copyBodyToResponse();
+    }
+
+    private void writeEntry(HttpServletRequest request, HttpServletResponse response, ResponseCache.Entry entry) throws IOException {
+        response.setHeader(HttpHeaders.ETAG, entry.etag());
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), entry.etag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(entry.contentType());
+        response.setContentLength(entry.body().length);
+        response.getOutputStream().write(entry.body());
+    }
+
+    private boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(etag));
+    }
+
+    // the same parameters in another order give the same key
+    private String cacheKey(HttpServletRequest request) {
+        Map<String, String[]> parameters = new TreeMap<>(request.getParameterMap());
+        if (parameters.isEmpty()) return request.getRequestURI();
+
+        StringBuilder key = new StringBuilder(request.getRequestURI()).append('?');
+        parameters.forEach((name, values) -> {
+            for (String value : values) {
+                key.append(name).append('=').append(value).append('&');
+            }
+        });
+        return key.toString();
+    }
+}
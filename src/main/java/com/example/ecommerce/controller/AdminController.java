@@ -8,6 +8,7 @@ import com.example.ecommerce.dto.request.product.UpdateProductRequest;
 import com.example.ecommerce.dto.request.promotion.CreatePromotionRequest;
 import com.example.ecommerce.dto.request.promotion.UpdatePromotionRequest;
 import com.example.ecommerce.dto.response.Response;
+import com.example.ecommerce.service.cache.CatalogCache;
 import com.example.ecommerce.service.service.*;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -34,6 +35,12 @@ public class AdminController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private StoreStatsService storeStatsService;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
     @Autowired
     private UserService userService;
 
@@ -347,6 +354,21 @@ public class AdminController {
         return productService.deleteProductById(id);
     }
 
+    @PostMapping("/manage-products/rebuild-ratings")
+    public ResponseEntity<Response> rebuildProductRatings() {
+        return productService.rebuildRatingAggregates();
+    }
+
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Response> getCacheStats() {
+        return catalogCache.getStats();
+    }
+
+    @PostMapping("/manage-stores/rebuild-stats")
+    public ResponseEntity<Response> rebuildStoreStats() {
+        return storeStatsService.rebuildStats();
+    }
+
     @Operation(
             summary = "Get all feedbacks",
             security = @SecurityRequirement(name = "bearerAuth")
@@ -1,7 +1,9 @@
 package com.example.ecommerce.controller;
 
+import com.example.ecommerce.domain.Category;
 import com.example.ecommerce.domain.User;
 import com.example.ecommerce.dto.request.MarkNotificationsAsRead;
+import com.example.ecommerce.dto.request.product.ProductFilterRequest;
 import com.example.ecommerce.dto.response.Response;
 import com.example.ecommerce.service.impl.StoreService;
 import com.example.ecommerce.service.service.*;
@@ -20,6 +22,9 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Arrays;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api")
 public class AnonymousController {
@@ -40,6 +45,9 @@ public class AnonymousController {
 
     @Autowired
     private NotificationService notificationService;
+
+    @Autowired
+    private SuggestionService suggestionService;
     @Operation(
             summary = "Get all products"
     )
@@ -105,16 +113,71 @@ public class AnonymousController {
     @GetMapping("/products")
     public ResponseEntity<Response> getProducts(@RequestParam(defaultValue = "0", required = false) Integer page,
                                                 @RequestParam(defaultValue = "0",  required = false) Integer elementsPerPage,
-                                                @RequestParam(defaultValue = "all",  required = false)  String category,
+                                                @RequestParam(defaultValue = "all",  required = false)  String category, // one or more categories separated by commas
                                                 @RequestParam(defaultValue = "0",  required = false) Long storeId,
                                                 @RequestParam(defaultValue = "name",  required = false) String filter,
                                                 @RequestParam(defaultValue = "asc",  required = false) String sortBy,
-                                                @RequestParam(defaultValue = "all", required = false) String status
+                                                @RequestParam(defaultValue = "all", required = false) String status,
+                                                @RequestParam(required = false) Double minPrice,
+                                                @RequestParam(required = false) Double maxPrice,
+                                                @RequestParam(required = false) Double minRating,
+                                                @RequestParam(required = false) Boolean onSale,
+                                                @RequestParam(required = false) String cursor,
+                                                @RequestParam(defaultValue = "true", required = false) boolean countTotal
                                                 ) {
         if (elementsPerPage == 0) {
             elementsPerPage = Integer.parseInt(defaultElementPerPage);
         }
-        return productService.getAllProducts(page, elementsPerPage, category, storeId, filter, sortBy, status);
+
+        ProductFilterRequest filterRequest = toProductFilterRequest(category, storeId, status, minPrice, maxPrice, minRating, onSale);
+
+        // the cursor pagination is used when a cursor is given, an empty cursor for the first page
+        if (cursor != null) {
+            return productService.getAllProducts(cursor, countTotal, elementsPerPage, filterRequest, filter, sortBy);
+        }
+        return productService.getAllProducts(page, elementsPerPage, filterRequest, filter, sortBy);
+    }
+
+    // the counts of the products for each category, store, price range and rating of the listing with the same filters
+    @GetMapping("/products/facets")
+    public ResponseEntity<Response> getProductFacets(@RequestParam(defaultValue = "all",  required = false)  String category,
+                                                     @RequestParam(defaultValue = "0",  required = false) Long storeId,
+                                                     @RequestParam(defaultValue = "all", required = false) String status,
+                                                     @RequestParam(required = false) Double minPrice,
+                                                     @RequestParam(required = false) Double maxPrice,
+                                                     @RequestParam(required = false) Double minRating,
+                                                     @RequestParam(required = false) Boolean onSale) {
+        return productService.getProductFacets(toProductFilterRequest(category, storeId, status, minPrice, maxPrice, minRating, onSale));
+    }
+
+    private ProductFilterRequest toProductFilterRequest(String category, Long storeId, String status, Double minPrice,
+                                                        Double maxPrice, Double minRating, Boolean onSale) {
+        List<Category> categories = null;
+        if (!category.equalsIgnoreCase("all")) {
+            categories = Arrays.stream(category.split(","))
+                    .map(String::trim)
+                    .map(String::toUpperCase)
+                    .map(Category::valueOf)
+                    .toList();
+        }
+
+        // "all" for all the products, "sold_out" for the products with no quantity left, anything else for the available ones
+        Boolean inStock = null;
+        if (status.equalsIgnoreCase("SOLD_OUT")) {
+            inStock = false;
+        } else if (!status.equalsIgnoreCase("ALL")) {
+            inStock = true;
+        }
+
+        return ProductFilterRequest.builder()
+                .categories(categories)
+                .storeId(storeId)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .minRating(minRating)
+                .inStock(inStock)
+                .onSale(onSale)
+                .build();
     }
 
 //    @GetMapping("/products/{storeId}")
@@ -165,6 +228,12 @@ public class AnonymousController {
 
     }
 
+    @GetMapping("/suggest")
+    public ResponseEntity<Response> suggest(@RequestParam String keyword) {
+        // not saved in the search history, it is called on every keystroke
+        return suggestionService.suggest(keyword);
+    }
+
     @GetMapping("/search-stores")
     public ResponseEntity<Response> searchStores(@RequestParam String keyword,
                                                  @RequestParam(defaultValue = "0") Integer page,
@@ -351,13 +420,19 @@ public class AnonymousController {
                                                         @RequestParam(defaultValue = "0", required = false) Integer elementsPerPage,
                                                         @RequestParam(defaultValue = "all", required = false) String status,
                                                         @RequestParam(defaultValue = "createdAt", required = false) String filter,
-                                                        @RequestParam(defaultValue = "desc", required = false) String sortBy) {
+                                                        @RequestParam(defaultValue = "desc", required = false) String sortBy,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(defaultValue = "true", required = false) boolean countTotal) {
 
         if (elementsPerPage == 0) {
             elementsPerPage = Integer.parseInt(defaultElementPerPage);
         }
 
         User user = getCurrentUser();
+        // the cursor pagination is used when a cursor is given, an empty cursor for the first page
+        if (cursor != null) {
+            return notificationService.getAllNotificationsByUser(user, cursor, countTotal, elementsPerPage, status, filter, sortBy);
+        }
         return notificationService.getAllNotificationsByUser(user, page, elementsPerPage, status, filter, sortBy);
     }
 
@@ -8,6 +8,7 @@ import com.example.ecommerce.dto.request.order.UpdateOrderRequest;
 import com.example.ecommerce.dto.request.promotion.AddPromotionToCartRequest;
 import com.example.ecommerce.dto.response.Response;
 import com.example.ecommerce.service.impl.CustomerService;
+import com.example.ecommerce.service.service.IdempotencyService;
 import com.example.ecommerce.service.service.PromotionService;
 import com.example.ecommerce.service.service.TransactionService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -38,6 +39,9 @@ public class CustomerController {
     @Autowired
     private PromotionService promotionService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     @Autowired
     private TransactionService transactionService;
 
@@ -71,9 +75,12 @@ public class CustomerController {
     }
 
     @PostMapping("/checkout")
-    public ResponseEntity<Response> checkout(@RequestBody CheckoutRequest request) {
+    public ResponseEntity<Response> checkout(@RequestBody CheckoutRequest request,
+                                             @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         User currentCustomer = getCurrentCustomer();
-        return customerService.checkout(currentCustomer.getId(), request);
+        // a retry with the same key gets the response of the first checkout instead of checking out again
+        return idempotencyService.execute("checkout", currentCustomer.getId(), idempotencyKey, request,
+                () -> customerService.checkout(currentCustomer.getId(), request));
     }
 
     @PutMapping("/update-status-order")
@@ -89,7 +96,9 @@ public class CustomerController {
                                               @RequestParam(defaultValue = "createdAt",  required = false) String filter,
                                               @RequestParam(defaultValue = "desc",  required = false) String sortBy,
                                               @RequestParam(required = false) String from,
-                                              @RequestParam(required = false) String to) {
+                                              @RequestParam(required = false) String to,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(defaultValue = "true", required = false) boolean countTotal) {
 
         if (elementsPerPage == 0) {
             elementsPerPage = Integer.parseInt(defaultElementPerPage);
@@ -113,6 +122,10 @@ public class CustomerController {
         }
 
         User currentCustomer = getCurrentCustomer();
+        // the cursor pagination is used when a cursor is given, an empty cursor for the first page
+        if (cursor != null) {
+            return customerService.getOrders(currentCustomer.getId(), cursor, countTotal, elementsPerPage, status, filter, sortBy, fromDateTime, toDateTime);
+        }
         return customerService.getOrders(currentCustomer.getId(), page, elementsPerPage, status, filter, sortBy, fromDateTime, toDateTime);
     }
 
@@ -221,9 +234,11 @@ public class CustomerController {
     }
 
     @PutMapping("/top-up-balance")
-    public ResponseEntity<Response> topUpBalance(@RequestBody TopUpBalanceRequest topUpBalanceRequest) {
+    public ResponseEntity<Response> topUpBalance(@RequestBody TopUpBalanceRequest topUpBalanceRequest,
+                                                 @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         User currentCustomer = getCurrentCustomer();
-        return customerService.topUpBalance(currentCustomer.getId(), topUpBalanceRequest);
+        return idempotencyService.execute("top-up-balance", currentCustomer.getId(), idempotencyKey, topUpBalanceRequest,
+                () -> customerService.topUpBalance(currentCustomer.getId(), topUpBalanceRequest));
     }
 
     @GetMapping("/transactions")
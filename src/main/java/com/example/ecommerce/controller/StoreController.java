@@ -131,6 +131,13 @@ public class StoreController {
         return storeService.deleteProductById(currentStore.getId(), productId);
     }
 
+    @Operation(summary = "Hot stock mode", description = "Enable or disable the hot stock mode of a product, for flash sales: the checkouts take its stock from in-memory counters and its quantity is updated every second")
+    @PutMapping("/products/{productId}/hot-stock")
+    public ResponseEntity<Response> setHotStock(@PathVariable Long productId, @RequestParam boolean enabled) {
+        User currentStore = getCurrentStore();
+        return storeService.setHotStock(currentStore.getId(), productId, enabled);
+    }
+
     @Operation(summary = "Get orders", description = "Get all orders")
     @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Get order successfully!", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Response.class), examples = @ExampleObject(value = """
             {
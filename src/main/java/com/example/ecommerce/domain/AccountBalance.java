@@ -0,0 +1,25 @@
+package com.example.ecommerce.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// the balance of a user materialized from the ledger (the transactions), in its own narrow row instead of the user one.
+// only changed through AccountBalanceRepository, see LedgerServiceImpl.
+// created on the first change of the balance, from the balance the user had before the ledger.
+// a DECIMAL, so that the checks and updates of the balance are exact, see LedgerColumnsMigration
+@Entity
+@Table(name = "account_balance")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountBalance {
+    @Id
+    private Long userId;
+    @Convert(converter = MoneyDecimalConverter.class)
+    @Column(precision = 19, scale = 2, nullable = false)
+    private Money balance;
+}
@@ -1,19 +1,15 @@
 package com.example.ecommerce.domain;
 
 import com.example.ecommerce.dto.response.CartStoreItem;
-import com.example.ecommerce.dto.response.StoreBriefInfo;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
-import lombok.Data;
-import lombok.ToString;
-import org.hibernate.Hibernate;
+import lombok.*;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Entity
 @Data
-@ToString(exclude = {"items"}) // to prevent the error of "could not initialize proxy - no Session"
+@ToString(exclude = {"items", "pricing"}) // to prevent the error of "could not initialize proxy - no Session"
 public class Cart {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -24,17 +20,19 @@ public class Cart {
 
     @OneToMany(cascade = CascadeType.ALL)
     private List<Promotion> promotions;
-    
+
+    // pricing of the current items and promotions, computed again at the first read after a change
+    @Transient
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private CartPricing pricing;
+
     public void addVoucher(Voucher voucher) {
         promotions.add(voucher);
         if (voucher != null) {
-            Map<StoreBriefInfo, List<OrderItem>> itemsByStore = groupItemsByStore();
             // apply voucher to all items
-            itemsByStore.forEach((store, storeItems) -> {
-                storeItems.forEach(item -> {
-                    item.applyPromotion(voucher);
-                });
-            });
+            items.forEach(item -> item.applyPromotion(voucher));
+            pricing = null;
         }
 
     }
@@ -43,15 +41,11 @@ public class Cart {
         promotions.add(coupon);
         if (coupon != null) {
             // apply coupon to the items of the store that the coupon belongs to
-            Map<StoreBriefInfo, List<OrderItem>> itemsByStore = groupItemsByStore();
-
-            itemsByStore.forEach((store, storeItems) -> {
-                if (store.getId().equals(coupon.getStore().getId())) {
-                    storeItems.forEach(item -> {
-                        item.applyPromotion(coupon);
-                    });
-                }
-            });
+            Long storeId = coupon.getStore().getId();
+            items.stream()
+                    .filter(item -> item.getStoreId().equals(storeId))
+                    .forEach(item -> item.applyPromotion(coupon));
+            pricing = null;
         }
 
     }
@@ -59,28 +53,18 @@ public class Cart {
 
     public void removeVoucher(Voucher voucher) {
         if (voucher != null) {
-            Map<StoreBriefInfo, List<OrderItem>> itemsByStore = groupItemsByStore();
-            // apply voucher to all items
-            itemsByStore.forEach((store, storeItems) -> {
-                storeItems.forEach(item -> {
-                    item.removePromotion(voucher);
-                });
-            });
+            items.forEach(item -> item.removePromotion(voucher));
+            pricing = null;
         }
     }
 
     public void removeCoupon(Coupon coupon) {
         if (coupon != null) {
-            // apply coupon to the items of the store that the coupon belongs to
-            Map<StoreBriefInfo, List<OrderItem>> itemsByStore = groupItemsByStore();
-
-            itemsByStore.forEach((store, storeItems) -> {
-                if (store.getId().equals(coupon.getStore().getId())) {
-                    storeItems.forEach(item -> {
-                        item.removePromotion(coupon);
-                    });
-                }
-            });
+            Long storeId = coupon.getStore().getId();
+            items.stream()
+                    .filter(item -> item.getStoreId().equals(storeId))
+                    .forEach(item -> item.removePromotion(coupon));
+            pricing = null;
         }
     }
 
@@ -102,6 +86,7 @@ public class Cart {
                     .build();
             items.add(newItem);
         }
+        pricing = null;
 
     }
 
@@ -111,48 +96,44 @@ public class Cart {
 
         if (alreadyExists) {
             items.removeIf(item -> item.getProduct().getId().equals(product.getId()));
+            pricing = null;
         } else {
             throw new IllegalStateException("Product doesn't exist in the cart");
 
         }
     }
 
-    @JsonIgnore
-    public Double getTotalPrice() {
-        return items.stream().mapToDouble(OrderItem::getPrice).sum();
+    public void setItems(List<OrderItem> items) {
+        this.items = items;
+        pricing = null;
     }
 
-    public List<CartStoreItem> getItems() {
-        // group the items by store
-
-        Map<StoreBriefInfo, List<OrderItem>> itemsByStore = groupItemsByStore();
+    @JsonIgnore
+    public List<OrderItem> getOrderItems() {
+        return items;
+    }
 
+    @JsonIgnore
+    public CartPricing getPricing() {
+        if (pricing == null) {
+            pricing = CartPricing.of(items);
+        }
+        return pricing;
+    }
 
-        return itemsByStore.entrySet().stream()
-                .map(entry -> CartStoreItem.builder()
-                        .store(entry.getKey())
-                        .items(entry.getValue())
-                        .build())
-                .collect(Collectors.toList());
+    @JsonIgnore
+    public Money getTotalPrice() {
+        return getPricing().total();
     }
 
-    private Map<StoreBriefInfo, List<OrderItem>> groupItemsByStore() {
-        Map<StoreBriefInfo, List<OrderItem>> itemsByStore = new LinkedHashMap<>();
-        for (OrderItem item : items) {
-            StoreBriefInfo store = item.getProduct().getStore();
-            if (itemsByStore.containsKey(store)) {
-                itemsByStore.get(store).add(item);
-            } else {
-                List<OrderItem> storeItems = new ArrayList<>();
-                storeItems.add(item);
-                itemsByStore.put(store, storeItems);
-            }
-        }
-        return itemsByStore;
+    public List<CartStoreItem> getItems() {
+        // group the items by store
+        return getPricing().toCartStoreItems();
     }
 
     public List<OrderItem> getOrderItemsPreview() {
-         Collections.reverse(items); // this will not be save to the database
-        return items;
+        List<OrderItem> preview = new ArrayList<>(items);
+        Collections.reverse(preview);
+        return preview;
     }
 }
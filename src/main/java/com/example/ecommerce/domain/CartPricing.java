@@ -0,0 +1,87 @@
+package com.example.ecommerce.domain;
+
+import com.example.ecommerce.dto.response.CartStoreItem;
+import com.example.ecommerce.dto.response.StoreBriefInfo;
+
+import java.util.*;
+
+// the items of a cart grouped by store with their subtotals and discounts.
+// computed in one pass over the items, immutable. Cart keeps the one of its current items and promotions,
+// and the reads of the cart, the checkout and the checks of the promotions all use it
+public record CartPricing(List<StoreGroup> stores, Set<Long> storeIds, Money subtotal, Money discount) {
+
+    public static final CartPricing EMPTY = new CartPricing(List.of(), Set.of(), Money.ZERO, Money.ZERO);
+
+    public record StoreGroup(StoreBriefInfo store, List<OrderItem> items, Money subtotal, Money discount) {
+        public StoreGroup {
+            items = List.copyOf(items);
+        }
+
+        public Money total() {
+            return subtotal.minus(discount);
+        }
+    }
+
+    public CartPricing {
+        stores = List.copyOf(stores);
+        storeIds = Set.copyOf(storeIds);
+    }
+
+    public static CartPricing of(List<OrderItem> items) {
+        if (items == null || items.isEmpty()) {
+            return EMPTY;
+        }
+        // the accumulators of the stores in minor units, in the order of their first item
+        Map<Long, GroupAccumulator> groups = new LinkedHashMap<>();
+        for (OrderItem item : items) {
+            GroupAccumulator group = groups.computeIfAbsent(item.getStoreId(), storeId -> new GroupAccumulator(item.getStoreInfo()));
+            long originalPrice = item.getOriginalPriceInMinorUnits();
+            group.items.add(item);
+            group.subtotal += originalPrice;
+            group.discount += originalPrice - item.getPriceInMinorUnits();
+        }
+
+        List<StoreGroup> stores = new ArrayList<>(groups.size());
+        long subtotal = 0;
+        long discount = 0;
+        for (GroupAccumulator group : groups.values()) {
+            stores.add(new StoreGroup(group.store, group.items, Money.ofMinorUnits(group.subtotal), Money.ofMinorUnits(group.discount)));
+            subtotal += group.subtotal;
+            discount += group.discount;
+        }
+        return new CartPricing(stores, groups.keySet(), Money.ofMinorUnits(subtotal), Money.ofMinorUnits(discount));
+    }
+
+    public Money total() {
+        return subtotal.minus(discount);
+    }
+
+    public boolean isEmpty() {
+        return stores.isEmpty();
+    }
+
+    public boolean containsStore(Long storeId) {
+        return storeIds.contains(storeId);
+    }
+
+    // the lists are copied, they become the items of the orders at checkout
+    public List<CartStoreItem> toCartStoreItems() {
+        return stores.stream()
+                .map(group -> CartStoreItem.builder()
+                        .store(group.store())
+                        .items(new ArrayList<>(group.items()))
+                        .build())
+                .toList();
+    }
+
+    private static class GroupAccumulator {
+        private final StoreBriefInfo store;
+        private final List<OrderItem> items = new ArrayList<>();
+        private long subtotal;
+        private long discount;
+
+        private GroupAccumulator(StoreBriefInfo store) {
+            this.store = store;
+        }
+    }
+}
@@ -31,6 +31,11 @@ public class Coupon extends Promotion{
         return couponSet.getPercent();
     }
 
+    @Override
+    public Long getPromotionSetId() {
+        return couponSet.getId();
+    }
+
     @Override
     public String getStatus() {
         return couponSet.getStatus();
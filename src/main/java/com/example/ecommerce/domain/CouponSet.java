@@ -30,33 +30,15 @@ public class CouponSet extends PromotionSet{
     @ManyToOne(fetch = FetchType.LAZY)
     private Store store;
 
-    public int getQuantityAvailable() {
-        return coupons.stream().filter(coupon -> coupon.getCustomer() == null).toArray().length;
-    }
-
-    @Override
-    public void addItems(int quantity) {
-        for (int i = 0; i < quantity; i++) {
-            Coupon coupon = new Coupon();
-            coupon.setCouponSet(this);
-            coupon.setCreatedAt(LocalDateTime.now());
-            coupons.add(coupon);
-        }
-    }
-
-    public List<Promotion> subtractCoupons(int quantity) {
-        return subtractItems(coupons, quantity);
-    }
-
     @Override
-    public Promotion getAnUnUsedItem() {
-        return coupons.stream()
-                .filter(coupon -> !coupon.isUsed() && coupon.getCustomer() == null)
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("No coupon available for this coupon set"));
+    public Coupon mint() {
+        Coupon coupon = new Coupon();
+        coupon.setCouponSet(this);
+        coupon.setCode(generateRandomString());
+        coupon.setCreatedAt(LocalDateTime.now());
+        return coupon;
     }
 
-
     public StoreBriefInfo getStore() {
         return new StoreBriefInfo(store);
     }
@@ -19,7 +19,7 @@ public class DeliveryPartner extends User{
     private Long id;
     @Column(columnDefinition="LONGTEXT")
     private String description;
-    private Double shippingFee;
+    private Money shippingFee;
 
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "deliveryPartner")
     @JsonIgnore
@@ -0,0 +1,35 @@
+package com.example.ecommerce.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// the response of a request sent with an idempotency key, returned again when the request is retried with the same key.
+// deleted once expired, see IdempotencyServiceImpl
+@Entity
+@Table(name = "idempotency_record", indexes = @Index(name = "idx_idempotency_expires_at", columnList = "expiresAt"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyRecord {
+    // the operation, the user and the key of the client
+    @Id
+    private String id;
+    // to detect a key reused for another request
+    private int requestHash;
+    // the request holding the key, changes when a stale request is taken over
+    private String claimToken;
+    private LocalDateTime claimedAt;
+    private boolean completed;
+
+    private int responseStatus;
+    private String responseMessage;
+    @Column(columnDefinition = "LONGTEXT")
+    private String responseData;
+    private LocalDateTime expiresAt;
+}
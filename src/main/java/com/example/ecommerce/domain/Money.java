@@ -0,0 +1,107 @@
+package com.example.ecommerce.domain;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// an amount of money as a whole number of minor units (hundredths), so that sums and differences are exact.
+// immutable. the static methods on longs are for the loops that add up many prices without allocating.
+// written to the database and to JSON as a decimal number, see MoneyConverter
+public final class Money implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private static final int SCALE = 2;
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    public static Money ofMinorUnits(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    @JsonCreator
+    public static Money of(double amount) {
+        return ofMinorUnits(toMinorUnits(amount));
+    }
+
+    public static Money of(BigDecimal amount) {
+        return ofMinorUnits(amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    // the nearest number of minor units, exact for any amount read back from a DOUBLE column written by MoneyConverter
+    public static long toMinorUnits(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    // what is left of the amount once the percent is taken off, rounded half up
+    public static long percentOff(long minorUnits, double percent) {
+        return BigDecimal.valueOf(minorUnits)
+                .multiply(BigDecimal.valueOf(100.0 - percent))
+                .divide(BigDecimal.valueOf(100), 0, RoundingMode.HALF_UP)
+                .longValueExact();
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Money plus(Money other) {
+        return ofMinorUnits(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinorUnits(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public Money times(long quantity) {
+        return ofMinorUnits(Math.multiplyExact(minorUnits, quantity));
+    }
+
+    public Money percentOff(double percent) {
+        return ofMinorUnits(percentOff(minorUnits, percent));
+    }
+
+    public boolean isPositive() {
+        return minorUnits > 0;
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    @JsonValue
+    public double toDouble() {
+        return minorUnits / 100.0;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Money money && money.minorUnits == minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    // e.g. in the descriptions of the transactions
+    @Override
+    public String toString() {
+        return toBigDecimal().stripTrailingZeros().toPlainString();
+    }
+}
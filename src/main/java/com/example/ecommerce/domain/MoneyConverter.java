@@ -0,0 +1,20 @@
+package com.example.ecommerce.domain;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// the Money attributes keep their DOUBLE columns, so the rows written before stay readable.
+// an amount of hundredths goes through a double and back without loss, see Money.toMinorUnits
+@Converter(autoApply = true)
+public class MoneyConverter implements AttributeConverter<Money, Double> {
+
+    @Override
+    public Double convertToDatabaseColumn(Money money) {
+        return money == null ? null : money.toDouble();
+    }
+
+    @Override
+    public Money convertToEntityAttribute(Double amount) {
+        return amount == null ? null : Money.of(amount);
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.ecommerce.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.example.ecommerce.config.IdSequenceAligner;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -15,7 +16,9 @@ import java.time.LocalDateTime;
 public class Notification {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled ids, so that Hibernate can insert them in JDBC batches (see IdSequenceAligner)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_seq")
+    @SequenceGenerator(name = "notification_seq", sequenceName = "notification_seq", allocationSize = IdSequenceAligner.ALLOCATION_SIZE)
     private Long id;
 
     @Enumerated(EnumType.STRING)
@@ -4,6 +4,7 @@ import com.example.ecommerce.dto.response.CustomerBriefInfo;
 import com.example.ecommerce.dto.response.DeliveryPartnerBriefInformation;
 import com.example.ecommerce.dto.response.StoreDetailedInfo;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.example.ecommerce.config.IdSequenceAligner;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -54,7 +55,9 @@ public class Order {
     }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled ids, so that Hibernate can insert them in JDBC batches (see IdSequenceAligner)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = IdSequenceAligner.ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -80,17 +83,33 @@ public class Order {
     private LocalDateTime deliveredAt;
     private String destinationAddress;
 
-    private Long totalPrice;
-    @Transient
-    private Double shippingFee;
+    // the amounts are set at checkout, so the listings don't load the items, their products or the delivery partner.
+    // they are null for the orders placed before they were stored, which are computed as they used to be
+    private Money subtotal;
+    private Money discount;
+    @Column(name = "total_amount")
+    private Money totalPrice;
+    private Money shippingFee;
+
+    // the prices the items were paid, with their vouchers and coupons
+    public Money getTotalPrice() {
+        if (totalPrice != null) return totalPrice;
+        return Money.ofMinorUnits(items.stream().mapToLong(OrderItem::getPriceInMinorUnits).sum());
+    }
+
+    public Money getSubtotal() {
+        if (subtotal != null) return subtotal;
+        return Money.ofMinorUnits(items.stream().mapToLong(OrderItem::getOriginalPriceInMinorUnits).sum());
+    }
 
-    public Long getTotalPrice() {
-        return items.stream()
-                .mapToLong(item -> (long) (item.getProduct().getPrice() * item.getQuantity())).sum();
+    public Money getDiscount() {
+        if (discount != null) return discount;
+        return getSubtotal().minus(getTotalPrice());
     }
 
-    public Double getShippingFee() {
-        if (deliveryPartner == null) return 0.0;
+    public Money getShippingFee() {
+        if (shippingFee != null) return shippingFee;
+        if (deliveryPartner == null || deliveryPartner.getShippingFee() == null) return Money.ZERO;
         return deliveryPartner.getShippingFee();
     }
     public CustomerBriefInfo getCustomer() {
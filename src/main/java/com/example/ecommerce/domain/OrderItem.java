@@ -2,7 +2,9 @@ package com.example.ecommerce.domain;
 
 import com.example.ecommerce.dto.response.ProductBriefInfo;
 import com.example.ecommerce.dto.response.ProductDetailedInfo;
+import com.example.ecommerce.dto.response.StoreBriefInfo;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.example.ecommerce.config.IdSequenceAligner;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.Cascade;
@@ -15,7 +17,9 @@ import org.hibernate.annotations.Cascade;
 public class OrderItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled ids, so that Hibernate can insert them in JDBC batches (see IdSequenceAligner)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq")
+    @SequenceGenerator(name = "order_item_seq", sequenceName = "order_item_seq", allocationSize = IdSequenceAligner.ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne
@@ -23,15 +27,49 @@ public class OrderItem {
     private Integer quantity;
 
     @Transient
-    private Double price;
+    private Money price;
+    // the price of the product when the order was placed, null while the item is in a cart
+    @JsonIgnore
+    private Money unitPrice;
 
     @ManyToOne
     private Voucher voucher;
     @ManyToOne
     private Coupon coupon;
 
-    private Double calculateOriginalPrice() {
-        return product.getPrice() * quantity;
+    // prices in minor units, for the sums of CartPricing and Order which add up many items without allocating
+    @JsonIgnore
+    public long getOriginalPriceInMinorUnits() {
+        long unitPriceInMinorUnits = unitPrice != null ? unitPrice.getMinorUnits() : Money.toMinorUnits(product.getPrice());
+        return unitPriceInMinorUnits * quantity;
+    }
+
+    // later changes of the price of the product don't change the price of the order
+    public void freezeUnitPrice() {
+        unitPrice = Money.of(product.getPrice());
+    }
+
+    @JsonIgnore
+    public long getPriceInMinorUnits() {
+        long price = getOriginalPriceInMinorUnits();
+        if (coupon != null) {
+            price = Money.percentOff(price, coupon.getPercent());
+        }
+        if (voucher != null) {
+            price = Money.percentOff(price, voucher.getPercent());
+        }
+        return price;
+    }
+
+    // the store of the product without building its ProductBriefInfo
+    @JsonIgnore
+    public Long getStoreId() {
+        return product.getStore().getId();
+    }
+
+    @JsonIgnore
+    public StoreBriefInfo getStoreInfo() {
+        return new StoreBriefInfo(product.getStore());
     }
 
 
@@ -50,23 +88,8 @@ public class OrderItem {
             this.coupon = null;
         }
     }
-    public Double getPrice() {
-        if (coupon == null && voucher == null) {
-            return calculateOriginalPrice();
-        } else {
-            return calculateDiscountPrice();
-        }
-    }
-
-    private Double calculateDiscountPrice() {
-        Double originalPrice = calculateOriginalPrice();
-        if (coupon != null) {
-            originalPrice = originalPrice * ((100.0 - coupon.getPercent()) / 100.0);
-        }
-        if (voucher != null) {
-            originalPrice = originalPrice *  ((100.0 - voucher.getPercent()) / 100.0);
-        }
-        return originalPrice;
+    public Money getPrice() {
+        return Money.ofMinorUnits(getPriceInMinorUnits());
     }
 
     public ProductBriefInfo getProduct() {
@@ -6,11 +6,23 @@ import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.Hibernate;
 import org.hibernate.annotations.Cascade;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
+// composite indexes for the filters of the product listing (see ProductSpecifications), the store_id one is created with the foreign key
+@Table(indexes = {
+        @Index(name = "idx_product_category_price", columnList = "category, price"),
+        @Index(name = "idx_product_category_quantity", columnList = "category, quantity"),
+        @Index(name = "idx_product_store_category", columnList = "store_id, category"),
+        @Index(name = "idx_product_price", columnList = "price"),
+        @Index(name = "idx_product_average_rating", columnList = "averageRating"),
+        @Index(name = "idx_product_quantity", columnList = "quantity")
+})
+// only the changed columns are written, so saving a product doesn't overwrite the quantity changed meanwhile by a checkout
+@DynamicUpdate
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
@@ -32,6 +44,10 @@ public class Product {
     private List<String> images;
     private Integer quantity;
     private int sold;
+    // the stock is taken from in-memory counters during flash sales, see HotStockCounters.
+    // only changed through ProductRepository.setHotStock
+    @Column(updatable = false)
+    private boolean hotStock;
 
     @Transient
     @JsonIgnore
@@ -55,15 +71,23 @@ public class Product {
     @Transient
     private Double rating;
 
+    // aggregates of the reviews, only changed through ProductRepository's bulk updates (see ReviewServiceImpl)
+    // so that listing pages never have to load the reviews, and saving a stale product can't overwrite them
+    @Column(updatable = false)
+    @JsonIgnore
+    private double ratingSum;
+    @Column(updatable = false)
+    private int reviewCount;
+    // ratingSum / reviewCount, stored to be filtered with an index
+    @Column(updatable = false)
+    @JsonIgnore
+    private double averageRating;
+
     public Double getRating() {
-        if (reviews == null || reviews.isEmpty()) {
+        if (reviewCount == 0) {
             return 0.0;
         }
-        double sum = 0;
-        for (Review review : reviews) {
-            sum += review.getRating();
-        }
-        return sum / reviews.size();
+        return ratingSum / reviewCount;
     }
 
     public Status getStatus() {
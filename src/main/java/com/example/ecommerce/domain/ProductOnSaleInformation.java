@@ -9,6 +9,7 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = @Index(name = "idx_sale_active", columnList = "isOnSale, expirationDate"))
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
@@ -12,6 +12,13 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @NoArgsConstructor
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
+@Table(indexes = {
+        // the promotions a customer can still use
+        @Index(name = "idx_promotion_customer_used", columnList = "customer_id, is_used"),
+        // the free promotions of a set, for the claims
+        @Index(name = "idx_promotion_voucher_set_customer", columnList = "voucher_set_id, customer_id"),
+        @Index(name = "idx_promotion_coupon_set_customer", columnList = "coupon_set_id, customer_id")
+})
 public abstract class Promotion {
 
     @Id
@@ -38,6 +45,9 @@ public abstract class Promotion {
 
     public abstract double getPercent();
 
+    @JsonIgnore
+    public abstract Long getPromotionSetId();
+
 
     public abstract String getStatus();
 
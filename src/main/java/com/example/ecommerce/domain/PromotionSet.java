@@ -8,9 +8,6 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
 
 @Entity
 @Data
@@ -36,30 +33,26 @@ public abstract class PromotionSet {
     private String status;
     @Transient
     public int quantityAvailable;
-    public abstract int getQuantityAvailable();
-    public abstract void addItems(int quantity);
-    protected List<Promotion> subtractItems(List<? extends Promotion> promotionList, int quantity) {
-        List<Promotion> removed = new ArrayList<>();
-        Iterator<? extends Promotion> iterator = promotionList.iterator();
-        while (iterator.hasNext()) {
-            Promotion coupon = iterator.next();
-            // only remove unused coupon
-            if (!coupon.isUsed()) {
-                iterator.remove();
-                removed.add(coupon);
-                quantity--;
-            }
-            if (quantity == 0) {
-                break;
-            }
+
+    // the promotions of the set, the ones given to a customer and the ones used at a checkout.
+    // only changed by the atomic updates of PromotionSetCounters, never by saving the set.
+    // null for the sets created before they were counted, until they are counted at startup
+    @Column(updatable = false)
+    private Integer issued;
+    @Column(updatable = false)
+    private Integer claimed;
+    @Column(updatable = false)
+    private Integer used;
+
+    public int getQuantityAvailable() {
+        if (issued == null || claimed == null) {
+            return 0;
         }
-        // return the removed coupons, since the relationship is bidirectional,
-        // the coupons will be removed from the coupon list and removed from the database
-        return removed;
+        return issued - claimed;
     }
 
-    @JsonIgnore
-    public abstract Promotion getAnUnUsedItem();
+    // the promotions are only created when they are claimed, the set only keeps how many can be (issued)
+    public abstract Promotion mint();
     public String getStatus() {
         if (expiredAt.isBefore(LocalDateTime.now())) {
             return "Expired";
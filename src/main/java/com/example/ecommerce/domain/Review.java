@@ -35,6 +35,16 @@ public class Review {
     @ManyToOne
     private Customer customer;
 
+    // the rating as it was loaded from the database, used to adjust the rating aggregates of the product on update
+    @Transient
+    @JsonIgnore
+    private Double persistedRating;
+
+    @PostLoad
+    private void rememberPersistedRating() {
+        this.persistedRating = rating;
+    }
+
     public CustomerBriefInfo getCustomer() {
         return new CustomerBriefInfo(customer); // only return necessary information, hide sensitive information
     }
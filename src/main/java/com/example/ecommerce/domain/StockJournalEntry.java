@@ -0,0 +1,24 @@
+package com.example.ecommerce.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// a change of the stock of a product in hot stock mode that is not applied to Product.quantity yet.
+// written in the transaction of the checkout or the cancellation, applied and deleted in batches by HotStockCounters
+@Entity
+@Table(name = "stock_journal")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockJournalEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long productId;
+    // positive when taken from the stock, negative when given back
+    private int quantity;
+}
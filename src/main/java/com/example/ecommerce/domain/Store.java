@@ -3,6 +3,7 @@ package com.example.ecommerce.domain;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Formula;
 
 import java.util.List;
 
@@ -31,4 +32,18 @@ public class Store extends User{
     @JsonIgnore
     private List<CouponSet> couponSets;
 
+    // read from store_stats in the same SQL statement as the store, so StoreDetailedInfo doesn't have to load the inventory and its reviews
+    @Formula("COALESCE((SELECT ss.product_count FROM store_stats ss WHERE ss.store_id = id), 0)")
+    @JsonIgnore
+    private int numberOfProducts;
+    @Formula("COALESCE((SELECT ss.review_count FROM store_stats ss WHERE ss.store_id = id), 0)")
+    @JsonIgnore
+    private long numberOfReviews;
+    @Formula("(SELECT ss.rating_sum / ss.review_count FROM store_stats ss WHERE ss.store_id = id AND ss.review_count > 0)")
+    @JsonIgnore
+    private Double averageProductRating;
+    @Formula("COALESCE((SELECT ss.total_sold FROM store_stats ss WHERE ss.store_id = id), 0)")
+    @JsonIgnore
+    private long totalSold;
+
 }
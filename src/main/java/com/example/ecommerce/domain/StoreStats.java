@@ -0,0 +1,36 @@
+package com.example.ecommerce.domain;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// precomputed statistics of a store, one row per store.
+// only changed through StoreStatsRepository's bulk updates, in the same transaction as the product, review or order mutation
+@Entity
+@Table(name = "store_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StoreStats {
+    @Id
+    private Long storeId;
+
+    private long productCount;
+    private double ratingSum;
+    private long reviewCount;
+    private long totalSold;
+
+    // number of orders by status
+    private long pendingOrders;
+    private long readyForDeliveryOrders;
+    private long deliveringOrders;
+    private long deliveredOrders;
+    private long cancelledByCustomerOrders;
+    private long cancelledByStoreOrders;
+    private long deliveryFailedOrders;
+}
@@ -10,6 +10,8 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
+// the ledger: the transactions are only appended, and the balance of a user is materialized from them (see LedgerServiceImpl)
+@Table(indexes = @Index(name = "idx_transaction_pending", columnList = "balanceAfter, id"))
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
@@ -23,11 +25,22 @@ public class Transaction {
     @ManyToOne(fetch = FetchType.LAZY)
     @JsonIgnore
     private User user;
-    private double amount;
+    // DECIMAL, see LedgerColumnsMigration
+    @Convert(converter = MoneyDecimalConverter.class)
+    @Column(precision = 19, scale = 2, nullable = false)
+    private Money amount;
     private String description;
     private LocalDateTime createdAt;
     @Enumerated(EnumType.STRING)
     private TransactionType transactionType;
+    // the balance of the user once this transaction is applied, null while it is waiting to be applied
+    @Convert(converter = MoneyDecimalConverter.class)
+    @Column(precision = 19, scale = 2)
+    private Money balanceAfter;
+    // a transaction is recorded only once for the same key
+    @Column(unique = true)
+    @JsonIgnore
+    private String idempotencyKey;
     public enum TransactionType {
         IN, OUT
     }
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.Cascade;
+import org.hibernate.annotations.Formula;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -29,7 +30,19 @@ public class User implements UserDetails {
     private String name;
     private String email;
     private String password;
+    // the balance from before the ledger, the starting point of the account balance
+    @Column(name = "balance", updatable = false)
+    @JsonIgnore
+    private double openingBalance;
+    // materialized from the ledger, see AccountBalance
+    @Formula("COALESCE((SELECT b.balance FROM account_balance b WHERE b.user_id = id), balance)")
     private double balance;
+    // optimistic locking of the user, the services changing it are retried on conflicts (see RetryOnConflict).
+    // not null with a default, for the existing rows
+    @Version
+    @JsonIgnore
+    @Column(nullable = false, columnDefinition = "bigint not null default 0")
+    private long version;
     @Lob
     private String avatar;
     private boolean isLocked;
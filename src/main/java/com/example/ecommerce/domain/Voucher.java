@@ -25,6 +25,11 @@ public class Voucher extends Promotion {
         return voucherSet.getPercent();
     }
 
+    @Override
+    public Long getPromotionSetId() {
+        return voucherSet.getId();
+    }
+
     @Override
     public String getStatus() {
         return voucherSet.getStatus();
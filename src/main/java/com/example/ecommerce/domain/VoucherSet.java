@@ -5,10 +5,10 @@ import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
+import static com.example.ecommerce.utils.Utils.generateRandomString;
+
 @Entity
 @Data
 @AllArgsConstructor
@@ -22,29 +22,11 @@ public class VoucherSet extends PromotionSet{
     private List<Voucher> vouchers;
 
     @Override
-    public int getQuantityAvailable() {
-        return vouchers.stream().filter(voucher -> voucher.getCustomer() == null).toArray().length;
-    }
-
-    @Override
-    public void addItems(int quantity) {
-        for (int i = 0; i < quantity; i++) {
-            Voucher voucher = new Voucher();
-            voucher.setVoucherSet(this);
-            voucher.setCreatedAt(LocalDateTime.now());
-            vouchers.add(voucher);
-        }
-    }
-
-    public List<Promotion> subtractVouchers(int quantity) {
-        return subtractItems(vouchers, quantity);
-    }
-
-    @Override
-    public Promotion getAnUnUsedItem() {
-        return vouchers.stream()
-                .filter(voucher -> !voucher.isUsed())
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("No voucher available for this voucher set"));
+    public Voucher mint() {
+        Voucher voucher = new Voucher();
+        voucher.setVoucherSet(this);
+        voucher.setCode(generateRandomString());
+        voucher.setCreatedAt(LocalDateTime.now());
+        return voucher;
     }
 }
@@ -0,0 +1,24 @@
+package com.example.ecommerce.dto.request.product;
+
+import com.example.ecommerce.domain.Category;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// the filters of the product listing, a null field means no filter on it
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFilterRequest {
+    private List<Category> categories; // any of them
+    private Long storeId;
+    private Double minPrice;
+    private Double maxPrice;
+    private Double minRating;
+    private Boolean inStock;
+    private Boolean onSale;
+}
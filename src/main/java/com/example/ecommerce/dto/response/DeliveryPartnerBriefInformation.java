@@ -1,6 +1,7 @@
 package com.example.ecommerce.dto.response;
 
 import com.example.ecommerce.domain.DeliveryPartner;
+import com.example.ecommerce.domain.Money;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -15,7 +16,7 @@ public class DeliveryPartnerBriefInformation {
     private String email;
     private String name;
     private String description;
-    private Double shippingFee;
+    private Money shippingFee;
 
     public DeliveryPartnerBriefInformation(DeliveryPartner deliveryPartner) {
         this.id = deliveryPartner.getId();
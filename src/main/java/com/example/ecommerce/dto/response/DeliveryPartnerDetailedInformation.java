@@ -1,6 +1,7 @@
 package com.example.ecommerce.dto.response;
 
 import com.example.ecommerce.domain.DeliveryPartner;
+import com.example.ecommerce.domain.Money;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -15,7 +16,7 @@ public class DeliveryPartnerDetailedInformation {
     private String email;
     private String name;
     private String description;
-    private Double shippingFee;
+    private Money shippingFee;
     private Double balance;
     public DeliveryPartnerDetailedInformation(DeliveryPartner deliveryPartner) {
         this.id = deliveryPartner.getId();
@@ -0,0 +1,51 @@
+package com.example.ecommerce.dto.response;
+
+import com.example.ecommerce.domain.Money;
+import com.example.ecommerce.domain.Order;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+// for the order lists, the items are only in the details of the order
+public class OrderBriefInfo {
+    private Long id;
+    private String orderCode;
+    private Order.OrderStatus status;
+    private Order.PaymentMethod paymentMethod;
+    private CustomerBriefInfo customer;
+    private StoreBriefInfo store;
+    private String destinationAddress;
+    private Money subtotal;
+    private Money discount;
+    private Money shippingFee;
+    private Money totalPrice;
+    private LocalDateTime createdAt;
+    private LocalDateTime deliveredAt;
+
+    public OrderBriefInfo(Order order) {
+        this.id = order.getId();
+        this.orderCode = order.getOrderCode();
+        this.status = order.getStatus();
+        this.paymentMethod = order.getPaymentMethod();
+        this.customer = order.getCustomer();
+        StoreDetailedInfo orderStore = order.getStore();
+        if (orderStore != null) {
+            this.store = new StoreBriefInfo(orderStore.getId(), orderStore.getName(), orderStore.getAvatar());
+        }
+        this.destinationAddress = order.getDestinationAddress();
+        this.subtotal = order.getSubtotal();
+        this.discount = order.getDiscount();
+        this.shippingFee = order.getShippingFee();
+        this.totalPrice = order.getTotalPrice();
+        this.createdAt = order.getCreatedAt();
+        this.deliveredAt = order.getDeliveredAt();
+    }
+
+    public static List<OrderBriefInfo> from(List<Order> orders) {
+        return orders.stream().map(OrderBriefInfo::new).toList();
+    }
+}
@@ -14,4 +14,6 @@ public class PageResponse {
     private int pageNumber;
     private int totalPages;
     private int size;
+    // only for the cursor pagination: the cursor to send to get the next page, null on the last page
+    private String nextCursor;
 }
@@ -42,7 +42,7 @@ public class ProductBriefInfo {
         this.store = new StoreBriefInfo(product.getStore());
         this.createdAt = product.getCreatedAt();
         this.rating = product.getRating();
-        this.reviewNum = product.getReviews().size();
+        this.reviewNum = product.getReviewCount();
     }
 
     public static List<ProductBriefInfo> from(List<Product> products) {
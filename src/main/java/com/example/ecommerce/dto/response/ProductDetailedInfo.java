@@ -13,7 +13,10 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import org.hibernate.Hibernate;
+
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -47,12 +50,11 @@ public class ProductDetailedInfo {
         this.price = product.getPrice();
         this.quantity = product.getQuantity();
         this.sold = product.getSold();
-        this.images = product.getImages();
-        this.reviews = product.getReviews();
-        this.rating = product.getReviews().stream()
-                .mapToDouble(Review::getRating)
-                .average()
-                .orElse(0.0);
+        // copies, since the product details are cached and serialized after the session of the product is closed
+        this.images = product.getImages() == null ? null : new ArrayList<>(product.getImages());
+        this.reviews = product.getReviews() == null ? null : new ArrayList<>(product.getReviews());
+        if (this.reviews != null) this.reviews.forEach(review -> Hibernate.initialize(review.getImages()));
+        this.rating = product.getRating();
         this.store = new StoreInformationForProduct(product.getStore());
         this.createdAt = product.getCreatedAt();
     }
@@ -76,14 +78,9 @@ public class ProductDetailedInfo {
             this.id = store.getId();
             this.name = store.getName();
             this.avatar = store.getAvatar();
-            this.numberOfProducts = store.getInventory().size();
-            this.numbersOfReviews = store.getInventory().stream()
-                    .mapToInt(p -> p.getReviews().size()).sum();
-            this.averageRating = store.getInventory()
-                    .stream().filter(product -> product.getReviews().size() > 0)
-                    .mapToDouble(product -> product.getReviews().stream().mapToDouble(Review::getRating).average().orElse(0.0))
-                    .average()
-                    .orElse(0.0);
+            this.numberOfProducts = store.getNumberOfProducts();
+            this.numbersOfReviews = store.getNumberOfReviews();
+            this.averageRating = store.getAverageProductRating() == null ? 0.0 : store.getAverageProductRating();
             this.createdAt = store.getCreatedAt();
             this.city = store.getCity();
         }
@@ -0,0 +1,45 @@
+package com.example.ecommerce.dto.response;
+
+import com.example.ecommerce.domain.Category;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+// the number of products of the listing for each value of the facets.
+// the count of a value is the number of products the listing would have with this value selected instead of the current one
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacets {
+    private long total;
+    private Map<Category, Long> categories;
+    private List<StoreCount> stores;
+    private List<PriceRangeCount> prices;
+    private List<RatingCount> ratings;
+
+    @Data
+    @AllArgsConstructor
+    public static class StoreCount {
+        private Long id;
+        private String name;
+        private long count;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class PriceRangeCount {
+        private Double minPrice; // inclusive
+        private Double maxPrice; // exclusive, null for no upper bound
+        private long count;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class RatingCount {
+        private int minRating; // this rating and up
+        private long count;
+    }
+}
@@ -1,11 +1,13 @@
 package com.example.ecommerce.dto.response;
 
 import com.example.ecommerce.domain.Store;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
 @NoArgsConstructor
+@AllArgsConstructor
 // for the data that can be publicly shown
 public class StoreBriefInfo {
     private Long id;
@@ -1,10 +1,8 @@
 package com.example.ecommerce.dto.response;
 
-import com.example.ecommerce.domain.Product;
 import com.example.ecommerce.domain.Store;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.springframework.cglib.core.Local;
 
 import java.math.RoundingMode;
 import java.text.DecimalFormat;
@@ -35,16 +33,11 @@ public class StoreDetailedInfo {
         this.description = store.getDescription();
         this.address = store.getAddress();
         this.city = store.getCity();
-        this.numberOfProducts = store.getInventory().size();
+        this.numberOfProducts = store.getNumberOfProducts();
         this.createdAt = store.getCreatedAt();
         this.phoneNumber = store.getPhoneNumber();
         this.balance = store.getBalance();
-        double rating = store.getInventory()
-                .stream()
-                .filter(product -> !product.getReviews().isEmpty())
-                .mapToDouble(Product::getRating)
-                .average()
-                .orElse(0);
+        double rating = store.getAverageProductRating() == null ? 0 : store.getAverageProductRating();
         DecimalFormat df = new DecimalFormat("#.##");
         df.setRoundingMode(RoundingMode.FLOOR);
         this.averageProductRating = df.format(rating).equals("NaN") ? 0 : Double.parseDouble(df.format(rating));
@@ -0,0 +1,18 @@
+package com.example.ecommerce.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Suggestion {
+    private Long id; // id of the product or the store, null for a keyword
+    private String text;
+    @JsonIgnore
+    private long score; // number of products sold or number of searches
+}
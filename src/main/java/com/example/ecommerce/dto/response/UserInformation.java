@@ -43,13 +43,8 @@ public class UserInformation {
             data.put("numberOfOrders", customer.getOrders().size());
         } else if (user instanceof Store) {
             Store store = (Store) user;
-            data.put("numberOfProductsInInventory", store.getInventory().size());
-
-            int numberOfProductsSold = store.getInventory()
-                    .stream()
-                    .mapToInt(Product::getSold)
-                    .sum();
-            data.put("numberOfProductsSold", numberOfProductsSold);
+            data.put("numberOfProductsInInventory", store.getNumberOfProducts());
+            data.put("numberOfProductsSold", store.getTotalSold());
             data.put("city", store.getCity());
             data.put("phoneNumber", store.getPhoneNumber());
 
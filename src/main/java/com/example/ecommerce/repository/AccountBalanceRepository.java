@@ -0,0 +1,34 @@
+package com.example.ecommerce.repository;
+
+import com.example.ecommerce.domain.AccountBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+@Repository
+public interface AccountBalanceRepository extends JpaRepository<AccountBalance, Long> {
+
+    // the row starts from the balance column of the user, the balance from before the ledger (a DOUBLE, rounded to hundredths).
+    // the amounts are DECIMAL(19,2), the arithmetic is exact
+    @Modifying
+    @Query(value = "INSERT INTO account_balance (user_id, balance) SELECT u.id, CAST(u.balance AS DECIMAL(19,2)) + :amount FROM user u WHERE u.id = :userId " +
+            "ON DUPLICATE KEY UPDATE balance = account_balance.balance + :amount", nativeQuery = true)
+    int addToBalance(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO account_balance (user_id, balance) SELECT u.id, CAST(u.balance AS DECIMAL(19,2)) FROM user u WHERE u.id = :userId", nativeQuery = true)
+    int createIfMissing(@Param("userId") Long userId);
+
+    // 0 when the balance is not enough
+    @Modifying
+    @Query(value = "UPDATE account_balance SET balance = balance - :amount WHERE user_id = :userId AND balance >= :amount", nativeQuery = true)
+    int subtractFromBalance(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    @Query(value = "SELECT balance FROM account_balance WHERE user_id = :userId", nativeQuery = true)
+    Optional<BigDecimal> findBalanceByUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,23 @@
+package com.example.ecommerce.repository;
+
+import com.example.ecommerce.domain.Cart;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CartRepository extends JpaRepository<Cart, Long> {
+    @Query("SELECT cu.cart FROM Customer cu WHERE cu.id = :customerId")
+    Optional<Cart> findByCustomerId(@Param("customerId") Long customerId);
+
+    // [productId, quantity] of the items, in the order they were added
+    @Query("SELECT i.product.id, i.quantity FROM Customer cu JOIN cu.cart c JOIN c.items i WHERE cu.id = :customerId ORDER BY i.id")
+    List<Object[]> findItemQuantitiesByCustomerId(@Param("customerId") Long customerId);
+
+    @Query("SELECT p.id FROM Customer cu JOIN cu.cart c JOIN c.promotions p WHERE cu.id = :customerId")
+    List<Long> findPromotionIdsByCustomerId(@Param("customerId") Long customerId);
+}
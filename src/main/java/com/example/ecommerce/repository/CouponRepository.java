@@ -4,11 +4,19 @@ import com.example.ecommerce.domain.Coupon;
 import com.example.ecommerce.domain.Customer;
 import com.example.ecommerce.domain.Store;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface CouponRepository extends JpaRepository<Coupon, Long> {
     List<Coupon> findAllByCustomerAndIsUsed(Customer customer, boolean isUsed);
+
+    // the coupons the customer can still use, with their sets and stores, through idx_promotion_customer_used
+    @Query("SELECT c FROM Coupon c JOIN FETCH c.couponSet s JOIN FETCH s.store " +
+            "WHERE c.customer.id = :customerId AND c.isUsed = false AND s.expiredAt > :now")
+    List<Coupon> findUnusedUnexpiredByCustomerId(@Param("customerId") Long customerId, @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,49 @@
+package com.example.ecommerce.repository;
+
+import com.example.ecommerce.domain.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+// each change is its own transaction, they are made around the one of the request
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // 0 when the key is already there
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT IGNORE INTO idempotency_record (id, request_hash, claim_token, claimed_at, completed, response_status, expires_at) " +
+            "VALUES (:id, :requestHash, :claimToken, :claimedAt, false, 0, :expiresAt)", nativeQuery = true)
+    int insertClaim(@Param("id") String id, @Param("requestHash") int requestHash, @Param("claimToken") String claimToken,
+                    @Param("claimedAt") LocalDateTime claimedAt, @Param("expiresAt") LocalDateTime expiresAt);
+
+    // takes over an expired record or a stale claim, 0 when another request took it first
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.requestHash = :requestHash, r.claimToken = :claimToken, r.claimedAt = :claimedAt, " +
+            "r.completed = false, r.responseData = null, r.expiresAt = :expiresAt WHERE r.id = :id AND r.claimToken = :previousClaimToken")
+    int replaceClaim(@Param("id") String id, @Param("previousClaimToken") String previousClaimToken, @Param("requestHash") int requestHash,
+                     @Param("claimToken") String claimToken, @Param("claimedAt") LocalDateTime claimedAt, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.completed = true, r.responseStatus = :status, r.responseMessage = :message, r.responseData = :data " +
+            "WHERE r.id = :id AND r.claimToken = :claimToken")
+    int complete(@Param("id") String id, @Param("claimToken") String claimToken, @Param("status") int status,
+                 @Param("message") String message, @Param("data") String data);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.claimToken = :claimToken")
+    int release(@Param("id") String id, @Param("claimToken") String claimToken);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,149 @@
+package com.example.ecommerce.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.beans.ConfigurablePropertyAccessor;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+// keyset (seek) pagination: instead of "OFFSET n", the next page starts after the last row of the previous one,
+// so a deep page costs the same as the first one, and the total count is only computed when it is asked for.
+// the rows are sorted by the requested field, then by id so that the order is unique.
+// the cursor is an opaque string holding the sort field, the direction and the sort value and id of the last row.
+@Repository
+public class KeysetPager {
+
+    private static final String SEPARATOR = "\n";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Data
+    @AllArgsConstructor
+    public static class KeysetPage<T> {
+        private List<T> content;
+        private String nextCursor; // null when there is no next page
+        private Long totalElements; // null when the count is skipped
+
+        // 0 when the count is skipped
+        public int getTotalPages(int size) {
+            return totalElements == null ? 0 : (int) ((totalElements + size - 1) / size);
+        }
+    }
+
+    // an empty or null cursor gives the first page
+    public <T> KeysetPage<T> findPage(Class<T> type, Specification<T> specification, String sortField, Sort.Direction direction,
+                                      String cursor, int size, boolean countTotal) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(type);
+        Root<T> root = query.from(type);
+        Path<Comparable<Object>> sortPath = root.get(sortField);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (specification != null) {
+            Predicate predicate = specification.toPredicate(root, query, cb);
+            if (predicate != null) predicates.add(predicate);
+        }
+        if (cursor != null && !cursor.isEmpty()) {
+            predicates.add(after(cb, root, sortPath, direction, decode(cursor, sortField, direction, sortPath.getJavaType())));
+        }
+
+        query.select(root)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(direction.isAscending() ? cb.asc(sortPath) : cb.desc(sortPath), cb.asc(root.get("id")));
+
+        // one more row than asked, to know if there is a next page
+        List<T> rows = entityManager.createQuery(query).setMaxResults(size + 1).getResultList();
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? new ArrayList<>(rows.subList(0, size)) : rows;
+        String nextCursor = hasNext ? encode(content.get(content.size() - 1), sortField, direction) : null;
+
+        Long totalElements = countTotal ? count(type, specification) : null;
+        return new KeysetPage<>(content, nextCursor, totalElements);
+    }
+
+    private <T> long count(Class<T> type, Specification<T> specification) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<T> root = query.from(type);
+        query.select(cb.count(root));
+        if (specification != null) {
+            Predicate predicate = specification.toPredicate(root, query, cb);
+            if (predicate != null) query.where(predicate);
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    // the rows after (value, id), MySQL puts the null values first in ascending order and last in descending order
+    private <T> Predicate after(CriteriaBuilder cb, Root<T> root, Path<Comparable<Object>> sortPath, Sort.Direction direction, Cursor cursor) {
+        Path<Long> idPath = root.get("id");
+        Predicate sameValueAndAfterId;
+        if (cursor.value == null) {
+            sameValueAndAfterId = cb.and(cb.isNull(sortPath), cb.greaterThan(idPath, cursor.id));
+            return direction.isAscending() ? cb.or(sameValueAndAfterId, cb.isNotNull(sortPath)) : sameValueAndAfterId;
+        }
+
+        sameValueAndAfterId = cb.and(cb.equal(sortPath, cursor.value), cb.greaterThan(idPath, cursor.id));
+        if (direction.isAscending()) {
+            return cb.or(cb.greaterThan(sortPath, cursor.value), sameValueAndAfterId);
+        }
+        return cb.or(cb.lessThan(sortPath, cursor.value), sameValueAndAfterId, cb.isNull(sortPath));
+    }
+
+    private String encode(Object row, String sortField, Sort.Direction direction) {
+        // read the fields directly, some getters of the entities return computed values or DTOs
+        ConfigurablePropertyAccessor accessor = PropertyAccessorFactory.forDirectFieldAccess(row);
+        Object value = accessor.getPropertyValue(sortField);
+        Object id = accessor.getPropertyValue("id");
+        String raw = String.join(SEPARATOR, sortField, direction.name(), value == null ? "" : "v" + value, String.valueOf(id));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Cursor decode(String cursor, String sortField, Sort.Direction direction, Class<?> valueType) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            // the sort value is the only part that may contain the separator
+            String[] head = raw.split(SEPARATOR, 3);
+            int lastSeparator = raw.lastIndexOf(SEPARATOR);
+            if (head.length != 3 || !head[0].equals(sortField) || !head[1].equals(direction.name())) {
+                throw new IllegalArgumentException("The cursor doesn't match the sort of the request");
+            }
+            String encodedValue = raw.substring(head[0].length() + head[1].length() + 2, lastSeparator);
+            Comparable<Object> value = encodedValue.isEmpty() ? null : parseValue(encodedValue.substring(1), valueType);
+            return new Cursor(value, Long.parseLong(raw.substring(lastSeparator + 1)));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException and DateTimeParseException included
+            throw new IllegalArgumentException("Invalid cursor: " + e.getMessage());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Comparable<Object> parseValue(String value, Class<?> type) {
+        Object parsed;
+        if (type == String.class) parsed = value;
+        else if (type == Long.class || type == long.class) parsed = Long.valueOf(value);
+        else if (type == Integer.class || type == int.class) parsed = Integer.valueOf(value);
+        else if (type == Double.class || type == double.class) parsed = Double.valueOf(value);
+        else if (type == Boolean.class || type == boolean.class) parsed = Boolean.valueOf(value);
+        else if (type == LocalDateTime.class) parsed = LocalDateTime.parse(value);
+        else if (type.isEnum()) parsed = Enum.valueOf((Class<? extends Enum>) type, value);
+        else throw new IllegalArgumentException("Cannot sort by a field of type " + type.getSimpleName());
+        return (Comparable<Object>) parsed;
+    }
+
+    private record Cursor(Comparable<Object> value, Long id) {
+    }
+}
@@ -2,6 +2,8 @@ package com.example.ecommerce.repository;
 
 import com.example.ecommerce.domain.MiniGamePlayingRecord;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -10,5 +12,6 @@ import java.util.List;
 @Repository
 public interface MiniGamePlayingRecordRepository extends JpaRepository<MiniGamePlayingRecord, Long> {
 
-    List<MiniGamePlayingRecord> findAllByCustomer_IdAndCreatedAtBetween(Long customerId, LocalDateTime start, LocalDateTime end);
+    @Query("SELECT DISTINCT r.customer.id FROM MiniGamePlayingRecord r WHERE r.createdAt >= :start AND r.createdAt < :end")
+    List<Long> findCustomerIdsByCreatedAtBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 }
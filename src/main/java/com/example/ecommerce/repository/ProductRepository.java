@@ -1,29 +1,90 @@
 package com.example.ecommerce.repository;
 
-import com.example.ecommerce.domain.Category;
 import com.example.ecommerce.domain.Product;
 import com.example.ecommerce.domain.Store;
+import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
 
+    // the listings fetch the store of the products in the same statement, for ProductBriefInfo
+    // (the images are loaded in batches, see hibernate.default_batch_fetch_size)
+    @EntityGraph(attributePaths = "store")
     Page<Product> findByNameContainingIgnoreCase(String name, Pageable pageable);
+    @EntityGraph(attributePaths = "store")
     Page<Product> findAllByStore(Store store, Pageable pageable);
 
+    @EntityGraph(attributePaths = "store")
+    <S extends Product> Page<S> findAll(Example<S> example, Pageable pageable);
 
-    Page<Product> findAllByStoreAndCategoryAndQuantityGreaterThan(Store store, Category category, Integer quantity, Pageable pageable);
+    // the product listing, see ProductSpecifications
+    @EntityGraph(attributePaths = "store")
+    Page<Product> findAll(Specification<Product> specification, Pageable pageable);
+
+    @EntityGraph(attributePaths = "store")
     Page<Product> findAllByStoreAndQuantityGreaterThan(Store store, Integer quantity, Pageable pageable);
-    Page<Product> findAllByCategoryAndQuantityGreaterThan(Category category, Integer quantity, Pageable pageable);
 
+    @EntityGraph(attributePaths = "store")
+    Page<Product> findAllByStoreAndQuantityEquals(Store store, Integer quantity, Pageable pageable);
 
-    Page<Product> findAllByQuantityGreaterThan(Integer quantity, Pageable pageable);
+    @Query("SELECT p.id, p.name, p.sold FROM Product p ORDER BY p.sold DESC")
+    List<Object[]> findNamesOrderBySoldDesc(Pageable pageable);
 
-    Page<Product> findAllByStoreAndQuantityEquals(Store store, Integer quantity, Pageable pageable);
+    // the stock is checked and taken in the same statement, so two concurrent checkouts can't both take the last units.
+    // 0 when there is not enough stock left, or when the product is in hot stock mode (see HotStockCounters)
+    @Modifying
+    @Query("UPDATE Product p SET p.quantity = p.quantity - :quantity " +
+            "WHERE p.id = :productId AND p.quantity >= :quantity AND p.hotStock = false")
+    int reserveStock(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.quantity = p.quantity + :quantity WHERE p.id = :productId")
+    int releaseStock(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+    // applies the stock journal of the products in hot stock mode, see HotStockCounters
+    @Modifying
+    @Query("UPDATE Product p SET p.quantity = p.quantity - :quantity WHERE p.id = :productId")
+    int subtractStock(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+    // locks the product until the end of the transaction, so that no checkout changes its quantity meanwhile.
+    // a scalar, the product may already be loaded with an older quantity in the persistence context
+    @Query(value = "SELECT quantity FROM product WHERE id = :productId FOR UPDATE", nativeQuery = true)
+    Optional<Integer> findQuantityByIdForUpdate(@Param("productId") Long productId);
+
+    // locks the product like findQuantityByIdForUpdate, the mode is read as last committed
+    @Query(value = "SELECT hot_stock FROM product WHERE id = :productId FOR UPDATE", nativeQuery = true)
+    Optional<Boolean> findHotStockByIdForUpdate(@Param("productId") Long productId);
+
+    @Query("SELECT p.id, p.quantity FROM Product p WHERE p.hotStock = true")
+    List<Object[]> findHotStockQuantities();
+
+    @Modifying
+    @Query("UPDATE Product p SET p.hotStock = :hotStock WHERE p.id = :productId")
+    int setHotStock(@Param("productId") Long productId, @Param("hotStock") boolean hotStock);
+
+    @Modifying
+    // the average is assigned first, MySQL would compute it from the new sum and count otherwise
+    @Query("UPDATE Product p SET " +
+            "p.averageRating = CASE WHEN p.reviewCount + :reviewCountDelta > 0 THEN (p.ratingSum + :ratingDelta) / (p.reviewCount + :reviewCountDelta) ELSE 0 END, " +
+            "p.ratingSum = p.ratingSum + :ratingDelta, p.reviewCount = p.reviewCount + :reviewCountDelta WHERE p.id = :productId")
+    int addToRatingAggregates(@Param("productId") Long productId, @Param("ratingDelta") double ratingDelta, @Param("reviewCountDelta") int reviewCountDelta);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.ratingSum = (SELECT COALESCE(SUM(r.rating), 0) FROM Review r WHERE r.product = p), " +
+            "p.reviewCount = (SELECT COUNT(r) FROM Review r WHERE r.product = p), " +
+            "p.averageRating = (SELECT COALESCE(AVG(r.rating), 0) FROM Review r WHERE r.product = p)")
+    int rebuildRatingAggregates();
 }
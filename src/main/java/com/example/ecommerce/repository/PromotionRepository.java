@@ -4,8 +4,12 @@ import com.example.ecommerce.domain.Promotion;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +17,24 @@ public interface PromotionRepository extends JpaRepository<Promotion, Long> {
     Page<Promotion> findAllByIsUsed(boolean isUsed, Pageable pageable);
 
     Optional<Promotion> findByCode(String code);
+
+    // promotions of the set no customer has, the ones locked by the other claims are skipped instead of waited for
+    @Query(value = "SELECT id FROM promotion WHERE voucher_set_id = :setId AND customer_id IS NULL " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> findFreeVoucherIdsForUpdate(@Param("setId") Long setId, @Param("limit") int limit);
+
+    @Query(value = "SELECT id FROM promotion WHERE coupon_set_id = :setId AND customer_id IS NULL " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> findFreeCouponIdsForUpdate(@Param("setId") Long setId, @Param("limit") int limit);
+
+    // the promotions created in advance for the sets made before the counters, taken back with the issued ones
+    @Modifying
+    @Query(value = "DELETE FROM promotion WHERE voucher_set_id = :setId AND customer_id IS NULL ORDER BY id LIMIT :limit",
+            nativeQuery = true)
+    int deleteFreeVouchers(@Param("setId") Long setId, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM promotion WHERE coupon_set_id = :setId AND customer_id IS NULL ORDER BY id LIMIT :limit",
+            nativeQuery = true)
+    int deleteFreeCoupons(@Param("setId") Long setId, @Param("limit") int limit);
 }
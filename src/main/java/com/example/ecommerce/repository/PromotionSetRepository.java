@@ -2,8 +2,46 @@ package com.example.ecommerce.repository;
 
 import com.example.ecommerce.domain.PromotionSet;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface PromotionSetRepository extends JpaRepository<PromotionSet, Long> {
+
+    @Modifying
+    @Query("UPDATE PromotionSet s SET s.issued = s.issued + :quantity WHERE s.id = :id")
+    int addIssued(@Param("id") Long id, @Param("quantity") int quantity);
+
+    // the promotions of the set left to claim, the row stays locked until the end of the claim.
+    // -1 for a set not counted yet (see PromotionSetCounters)
+    @Query(value = "SELECT COALESCE(issued - claimed, -1) FROM promotion_set WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Long> findAvailableForUpdate(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE PromotionSet s SET s.claimed = s.claimed + :quantity WHERE s.id = :id")
+    int addClaimed(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("UPDATE PromotionSet s SET s.used = s.used + :quantity WHERE s.id = :id")
+    int addUsed(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query(value = "UPDATE promotion_set s SET " +
+            "s.issued = (SELECT COUNT(*) FROM promotion p WHERE p.voucher_set_id = s.id), " +
+            "s.claimed = (SELECT COUNT(*) FROM promotion p WHERE p.voucher_set_id = s.id AND p.customer_id IS NOT NULL), " +
+            "s.used = (SELECT COUNT(*) FROM promotion p WHERE p.voucher_set_id = s.id AND p.is_used) " +
+            "WHERE s.dtype = 'voucher_set' AND s.issued IS NULL", nativeQuery = true)
+    int countUncountedVoucherSets();
+
+    @Modifying
+    @Query(value = "UPDATE promotion_set s SET " +
+            "s.issued = (SELECT COUNT(*) FROM promotion p WHERE p.coupon_set_id = s.id), " +
+            "s.claimed = (SELECT COUNT(*) FROM promotion p WHERE p.coupon_set_id = s.id AND p.customer_id IS NOT NULL), " +
+            "s.used = (SELECT COUNT(*) FROM promotion p WHERE p.coupon_set_id = s.id AND p.is_used) " +
+            "WHERE s.dtype = 'coupon_set' AND s.issued IS NULL", nativeQuery = true)
+    int countUncountedCouponSets();
 }
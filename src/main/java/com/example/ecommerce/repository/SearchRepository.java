@@ -5,6 +5,7 @@ import com.example.ecommerce.domain.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,5 +14,8 @@ import java.util.List;
 public interface SearchRepository extends JpaRepository<Search, Long> {
     List<Search> findTop10ByUserOrderByCreatedAtDesc(User user);
 
-    void deleteByKeyword(String keyword);
+    void deleteByUserAndKeyword(User user, String keyword);
+
+    @Query("SELECT s.keyword, COUNT(s) FROM Search s GROUP BY s.keyword ORDER BY COUNT(s) DESC")
+    List<Object[]> findKeywordsOrderByCountDesc(Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.example.ecommerce.repository;
+
+import com.example.ecommerce.domain.StockJournalEntry;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StockJournalRepository extends JpaRepository<StockJournalEntry, Long> {
+    List<StockJournalEntry> findAllByOrderByIdAsc(Pageable pageable);
+
+    // the entries of the product until the end of the transaction, see HotStockCounters.disable
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<StockJournalEntry> findAllByProductId(Long productId);
+}
@@ -4,6 +4,7 @@ import com.example.ecommerce.domain.Store;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,5 +13,7 @@ import java.util.List;
 public interface StoreRepository extends JpaRepository<Store, Long> {
     Page<Store> findByNameContainingIgnoreCase(String name, Pageable pageable);
 
+    @Query("SELECT s.id, s.name, COALESCE(SUM(p.sold), 0) FROM Store s LEFT JOIN s.inventory p GROUP BY s.id, s.name")
+    List<Object[]> findNamesWithTotalSold();
 
 }
@@ -0,0 +1,62 @@
+package com.example.ecommerce.repository;
+
+import com.example.ecommerce.domain.StoreStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+@Repository
+public interface StoreStatsRepository extends JpaRepository<StoreStats, Long> {
+
+    @Modifying
+    @Query("UPDATE StoreStats s SET s.productCount = s.productCount + :productCountDelta, s.ratingSum = s.ratingSum + :ratingDelta, " +
+            "s.reviewCount = s.reviewCount + :reviewCountDelta, s.totalSold = s.totalSold + :soldDelta WHERE s.storeId = :storeId")
+    int addToProductStats(@Param("storeId") Long storeId, @Param("productCountDelta") long productCountDelta, @Param("ratingDelta") double ratingDelta,
+                          @Param("reviewCountDelta") long reviewCountDelta, @Param("soldDelta") long soldDelta);
+
+    @Modifying
+    @Query("UPDATE StoreStats s SET s.ratingSum = s.ratingSum + :ratingDelta, s.reviewCount = s.reviewCount + :reviewCountDelta " +
+            "WHERE s.storeId = (SELECT p.store.id FROM Product p WHERE p.id = :productId)")
+    int addToRatingsOfProductStore(@Param("productId") Long productId, @Param("ratingDelta") double ratingDelta, @Param("reviewCountDelta") long reviewCountDelta);
+
+    // status is the name of an Order.OrderStatus
+    @Modifying
+    @Query("UPDATE StoreStats s SET " +
+            "s.pendingOrders = s.pendingOrders + CASE WHEN :status = 'PENDING' THEN :delta ELSE 0 END, " +
+            "s.readyForDeliveryOrders = s.readyForDeliveryOrders + CASE WHEN :status = 'READY_FOR_DELIVERY' THEN :delta ELSE 0 END, " +
+            "s.deliveringOrders = s.deliveringOrders + CASE WHEN :status = 'DELIVERING' THEN :delta ELSE 0 END, " +
+            "s.deliveredOrders = s.deliveredOrders + CASE WHEN :status = 'DELIVERED' THEN :delta ELSE 0 END, " +
+            "s.cancelledByCustomerOrders = s.cancelledByCustomerOrders + CASE WHEN :status = 'CANCELLED_BY_CUSTOMER' THEN :delta ELSE 0 END, " +
+            "s.cancelledByStoreOrders = s.cancelledByStoreOrders + CASE WHEN :status = 'CANCELLED_BY_STORE' THEN :delta ELSE 0 END, " +
+            "s.deliveryFailedOrders = s.deliveryFailedOrders + CASE WHEN :status = 'DELIVERY_FAILED' THEN :delta ELSE 0 END " +
+            "WHERE s.storeId = :storeId")
+    int addToOrderCount(@Param("storeId") Long storeId, @Param("status") String status, @Param("delta") long delta);
+
+    // one new pending order for each of the stores, for a checkout
+    @Modifying
+    @Query("UPDATE StoreStats s SET s.pendingOrders = s.pendingOrders + 1 WHERE s.storeId IN :storeIds")
+    int addPendingOrder(@Param("storeIds") Collection<Long> storeIds);
+
+    // computes the statistics of the stores that don't have them yet
+    @Modifying
+    @Query(value = "INSERT INTO store_stats (store_id, product_count, rating_sum, review_count, total_sold, pending_orders, " +
+            "ready_for_delivery_orders, delivering_orders, delivered_orders, cancelled_by_customer_orders, cancelled_by_store_orders, delivery_failed_orders) " +
+            "SELECT s.id, " +
+            "(SELECT COUNT(*) FROM product p WHERE p.store_id = s.id), " +
+            "(SELECT COALESCE(SUM(p.rating_sum), 0) FROM product p WHERE p.store_id = s.id), " +
+            "(SELECT COALESCE(SUM(p.review_count), 0) FROM product p WHERE p.store_id = s.id), " +
+            "(SELECT COALESCE(SUM(p.sold), 0) FROM product p WHERE p.store_id = s.id), " +
+            "(SELECT COUNT(*) FROM orders o WHERE o.store_id = s.id AND o.status = 'PENDING'), " +
+            "(SELECT COUNT(*) FROM orders o WHERE o.store_id = s.id AND o.status = 'READY_FOR_DELIVERY'), " +
+            "(SELECT COUNT(*) FROM orders o WHERE o.store_id = s.id AND o.status = 'DELIVERING'), " +
+            "(SELECT COUNT(*) FROM orders o WHERE o.store_id = s.id AND o.status = 'DELIVERED'), " +
+            "(SELECT COUNT(*) FROM orders o WHERE o.store_id = s.id AND o.status = 'CANCELLED_BY_CUSTOMER'), " +
+            "(SELECT COUNT(*) FROM orders o WHERE o.store_id = s.id AND o.status = 'CANCELLED_BY_STORE'), " +
+            "(SELECT COUNT(*) FROM orders o WHERE o.store_id = s.id AND o.status = 'DELIVERY_FAILED') " +
+            "FROM store s WHERE NOT EXISTS (SELECT 1 FROM store_stats ss WHERE ss.store_id = s.id)", nativeQuery = true)
+    int insertMissingStats();
+}
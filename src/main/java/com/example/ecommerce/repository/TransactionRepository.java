@@ -2,14 +2,26 @@ package com.example.ecommerce.repository;
 
 import com.example.ecommerce.domain.Transaction;
 import com.example.ecommerce.domain.Transaction.TransactionType;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
     Page<Transaction> findAllByUser_Id(Long id, org.springframework.data.domain.Pageable pageable);
 
     Page<Transaction> findAllByUser_IdAndTransactionType(Long userId, TransactionType transactionType, Pageable pageable);
+
+    // the transactions waiting to be applied to the balances,
+    // locked so that two calls of the applier never apply the same transactions twice
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Transaction> findAllByBalanceAfterIsNullOrderByIdAsc(Pageable pageable);
+
+    Optional<Transaction> findByIdempotencyKey(String idempotencyKey);
 }
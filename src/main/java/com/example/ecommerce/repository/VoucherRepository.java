@@ -7,8 +7,11 @@ import com.example.ecommerce.domain.VoucherSet;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -17,4 +20,9 @@ public interface VoucherRepository extends JpaRepository<Voucher, Long> {
     Page<Voucher> findAllByVoucherSet(VoucherSet voucherSet, Pageable pageable);
     Page<Voucher> findAllByVoucherSetAndIsUsed(VoucherSet voucherSet, boolean isUsed, Pageable pageable);
 
+    // the vouchers the customer can still use, with their sets, through idx_promotion_customer_used
+    @Query("SELECT v FROM Voucher v JOIN FETCH v.voucherSet s " +
+            "WHERE v.customer.id = :customerId AND v.isUsed = false AND s.expiredAt > :now")
+    List<Voucher> findUnusedUnexpiredByCustomerId(@Param("customerId") Long customerId, @Param("now") LocalDateTime now);
+
 }
@@ -0,0 +1,17 @@
+package com.example.ecommerce.repository.specification;
+
+import com.example.ecommerce.domain.Notification;
+import com.example.ecommerce.domain.User;
+import org.springframework.data.jpa.domain.Specification;
+
+public class NotificationSpecifications {
+
+    public static Specification<Notification> belongsTo(User user) {
+        return (root, query, cb) -> cb.equal(root.get("user"), user);
+    }
+
+    // a null value means both read and unread notifications
+    public static Specification<Notification> isRead(Boolean read) {
+        return (root, query, cb) -> read == null ? null : cb.equal(root.get("isRead"), read);
+    }
+}
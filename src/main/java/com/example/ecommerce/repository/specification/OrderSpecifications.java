@@ -0,0 +1,24 @@
+package com.example.ecommerce.repository.specification;
+
+import com.example.ecommerce.domain.Customer;
+import com.example.ecommerce.domain.Order;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class OrderSpecifications {
+
+    public static Specification<Order> belongsTo(Customer customer) {
+        return (root, query, cb) -> cb.equal(root.get("customer"), customer);
+    }
+
+    public static Specification<Order> createdBetween(LocalDateTime from, LocalDateTime to) {
+        return (root, query, cb) -> cb.between(root.get("createdAt"), from, to);
+    }
+
+    // a null list means all the statuses
+    public static Specification<Order> hasStatusIn(List<Order.OrderStatus> statuses) {
+        return (root, query, cb) -> statuses == null ? null : root.get("status").in(statuses);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.ecommerce.repository.specification;
+
+import com.example.ecommerce.domain.Category;
+import com.example.ecommerce.domain.Product;
+import com.example.ecommerce.domain.ProductOnSaleInformation;
+import com.example.ecommerce.domain.Store;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+// every filter is backed by one of the indexes of the product table (see Product's @Table)
+public class ProductSpecifications {
+
+    // a null argument means no filter on this attribute
+    public static Specification<Product> hasCategory(Category category) {
+        return (root, query, cb) -> category == null ? null : cb.equal(root.get("category"), category);
+    }
+
+    public static Specification<Product> hasCategoryIn(Collection<Category> categories) {
+        return (root, query, cb) -> categories == null || categories.isEmpty() ? null : root.get("category").in(categories);
+    }
+
+    public static Specification<Product> belongsTo(Store store) {
+        return (root, query, cb) -> store == null ? null : cb.equal(root.get("store"), store);
+    }
+
+    public static Specification<Product> priceBetween(Double minPrice, Double maxPrice) {
+        return (root, query, cb) -> {
+            if (minPrice != null && maxPrice != null) return cb.between(root.get("price"), minPrice, maxPrice);
+            if (minPrice != null) return cb.greaterThanOrEqualTo(root.get("price"), minPrice);
+            if (maxPrice != null) return cb.lessThanOrEqualTo(root.get("price"), maxPrice);
+            return null;
+        };
+    }
+
+    public static Specification<Product> ratingAtLeast(Double minRating) {
+        return (root, query, cb) -> minRating == null ? null : cb.greaterThanOrEqualTo(root.get("averageRating"), minRating);
+    }
+
+    public static Specification<Product> isSoldOut() {
+        return (root, query, cb) -> cb.equal(root.get("quantity"), 0);
+    }
+
+    public static Specification<Product> isInStock() {
+        return (root, query, cb) -> cb.greaterThan(root.get("quantity"), 0);
+    }
+
+    public static Specification<Product> hasStock(Boolean inStock) {
+        if (inStock == null) return (root, query, cb) -> null;
+        return inStock ? isInStock() : isSoldOut();
+    }
+
+    // on sale: the sale information is active and not expired
+    public static Specification<Product> isOnSale(Boolean onSale) {
+        return (root, query, cb) -> {
+            if (onSale == null) return null;
+
+            if (onSale) {
+                return isActiveSale(cb, root.join("onSaleInformation"));
+            }
+            // the products without sale information are not on sale either
+            Subquery<Long> activeSale = query.subquery(Long.class);
+            Join<Product, ProductOnSaleInformation> sale = activeSale.correlate(root).join("onSaleInformation");
+            activeSale.select(sale.get("id")).where(isActiveSale(cb, sale));
+            return cb.not(cb.exists(activeSale));
+        };
+    }
+
+    private static Predicate isActiveSale(CriteriaBuilder cb, Join<Product, ProductOnSaleInformation> sale) {
+        return cb.and(cb.isTrue(sale.get("isOnSale")),
+                cb.or(cb.isNull(sale.get("expirationDate")), cb.greaterThan(sale.get("expirationDate"), LocalDateTime.now())));
+    }
+}
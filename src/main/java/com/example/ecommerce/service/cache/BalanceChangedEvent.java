@@ -0,0 +1,13 @@
+package com.example.ecommerce.service.cache;
+
+import java.util.Collection;
+import java.util.List;
+
+// published by the ledger when balances change. only the cached store information shows a balance,
+// so this is not a CatalogChangedEvent: the products and the cached responses don't depend on it
+public record BalanceChangedEvent(Collection<Long> userIds) {
+
+    public static BalanceChangedEvent of(Collection<Long> userIds) {
+        return new BalanceChangedEvent(List.copyOf(userIds));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.ecommerce.service.cache;
+
+import com.example.ecommerce.dto.response.Response;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.AllArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// the caches of the catalog reads, configured by spring.cache.* in application.properties
+@Component
+@AllArgsConstructor
+public class CatalogCache {
+    public static final String PRODUCTS = "products";
+    public static final String PRODUCT_CATEGORIES = "product-categories";
+    public static final String STORES = "stores";
+    public static final String DELIVERY_PARTNERS = "delivery-partners";
+
+    // the order of the listeners of CatalogChangedEvent, these caches are evicted first
+    public static final int EVICTION_ORDER = 0;
+
+    private final CacheManager cacheManager;
+
+    // after the commit, so that a concurrent read can't put the old value back in the cache.
+    // when there is no transaction, the write is already committed.
+    // before the ResponseCache moves to its next generation, which must not render the evicted values
+    @Order(EVICTION_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        Cache products = cacheManager.getCache(PRODUCTS);
+        Cache stores = cacheManager.getCache(STORES);
+        event.productIds().forEach(products::evict);
+        event.storeIds().forEach(stores::evict);
+    }
+
+    // the users are stores or customers, they share their ids: a customer has no entry to evict
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBalanceChanged(BalanceChangedEvent event) {
+        Cache stores = cacheManager.getCache(STORES);
+        event.userIds().forEach(stores::evict);
+    }
+
+    public ResponseEntity<Response> getStats() {
+        Map<String, Map<String, Object>> statsByCache = new LinkedHashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            if (!(cacheManager.getCache(name) instanceof CaffeineCache cache)) continue;
+
+            CacheStats stats = cache.getNativeCache().stats();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("size", cache.getNativeCache().estimatedSize());
+            map.put("hits", stats.hitCount());
+            map.put("misses", stats.missCount());
+            map.put("hitRate", stats.hitRate());
+            map.put("evictions", stats.evictionCount());
+            statsByCache.put(name, map);
+        }
+
+        return ResponseEntity.ok(Response.builder()
+                .status(200)
+                .message("Get cache statistics successfully")
+                .data(statsByCache)
+                .build());
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.ecommerce.service.cache;
+
+import java.util.Collection;
+import java.util.List;
+
+// published by the writes to the products and stores, the cached reads of these ids are evicted once the write is committed
+public record CatalogChangedEvent(Collection<Long> productIds, Collection<Long> storeIds) {
+
+    public static CatalogChangedEvent ofProducts(Collection<Long> productIds) {
+        return new CatalogChangedEvent(productIds, List.of());
+    }
+
+    public static CatalogChangedEvent ofProduct(Long productId) {
+        return new CatalogChangedEvent(List.of(productId), List.of());
+    }
+
+    public static CatalogChangedEvent ofStore(Long storeId) {
+        return new CatalogChangedEvent(List.of(), List.of(storeId));
+    }
+
+    // e.g. a deleted product, or a new review which changes the rating of both
+    public static CatalogChangedEvent ofProductAndStore(Long productId, Long storeId) {
+        return new CatalogChangedEvent(List.of(productId), List.of(storeId));
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.ecommerce.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+// serialized responses of the hot anonymous endpoints, see ResponseCacheFilter.
+// the keys are the path and the normalized query string of the request
+@Component
+public class ResponseCache {
+    public static final String PRODUCTS_PATH = "/api/products";
+    public static final String PRODUCT_PATH = "/api/product/";
+
+    public record Entry(byte[] body, String contentType, String etag) {
+    }
+
+    private final Cache<String, Entry> entries;
+
+    // incremented by every eviction, a response rendered while the catalog changed is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    public ResponseCache(@Value("${response-cache.max-bytes:67108864}") long maxBytes,
+                         @Value("${response-cache.ttl-seconds:30}") long ttlSeconds) {
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, Entry entry) -> key.length() + entry.body().length)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public Entry get(String key) {
+        return entries.getIfPresent(key);
+    }
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    // only if nothing was evicted since the given generation
+    public void put(String key, Entry entry, long generationAtStart) {
+        if (generation.get() == generationAtStart) {
+            entries.put(key, entry);
+        }
+    }
+
+    // after CatalogCache: a response rendered in the new generation reads the evicted values again
+    @Order(CatalogCache.EVICTION_ORDER + 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        generation.incrementAndGet();
+        if (!event.storeIds().isEmpty()) {
+            // the store information is part of the details of all its products
+            entries.invalidateAll();
+            return;
+        }
+        // any product can be on any page of the listings
+        entries.asMap().keySet().removeIf(key -> key.startsWith(PRODUCTS_PATH));
+        for (Long productId : event.productIds()) {
+            String path = PRODUCT_PATH + productId;
+            entries.asMap().keySet().removeIf(key -> key.equals(path) || key.startsWith(path + "?"));
+        }
+    }
+}
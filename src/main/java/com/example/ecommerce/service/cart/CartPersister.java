@@ -0,0 +1,109 @@
+package com.example.ecommerce.service.cart;
+
+import com.example.ecommerce.domain.*;
+import com.example.ecommerce.exception.NotFoundException;
+import com.example.ecommerce.repository.CartRepository;
+import com.example.ecommerce.repository.ProductRepository;
+import com.example.ecommerce.repository.PromotionRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// moves the carts between the CartStore and the Cart / OrderItem tables, without going through the Customer
+@Component
+@AllArgsConstructor
+public class CartPersister {
+
+    private final CartRepository cartRepository;
+    private final ProductRepository productRepository;
+    private final PromotionRepository promotionRepository;
+
+    @Transactional(readOnly = true)
+    public CartSnapshot load(Long customerId) {
+        List<CartSnapshot.Line> lines = cartRepository.findItemQuantitiesByCustomerId(customerId).stream()
+                .map(row -> new CartSnapshot.Line((Long) row[0], (Integer) row[1]))
+                .toList();
+        return new CartSnapshot(lines, cartRepository.findPromotionIdsByCustomerId(customerId));
+    }
+
+    // replaces the items and the promotions of the cart, the items of the products still in it are kept
+    @Transactional
+    public void write(Long customerId, CartSnapshot snapshot) {
+        Cart cart = cartRepository.findByCustomerId(customerId)
+                .orElseThrow(() -> new NotFoundException("Cart not found for customer id: " + customerId));
+
+        Map<Long, OrderItem> existingItems = new HashMap<>();
+        cart.getOrderItems().forEach(item -> existingItems.putIfAbsent(item.getProduct().getId(), item));
+        Map<Long, Product> newProducts = findProducts(snapshot.lines().stream()
+                .map(CartSnapshot.Line::productId)
+                .filter(productId -> !existingItems.containsKey(productId))
+                .toList());
+
+        List<OrderItem> items = new ArrayList<>();
+        for (CartSnapshot.Line line : snapshot.lines()) {
+            OrderItem item = existingItems.get(line.productId());
+            if (item == null) {
+                Product product = newProducts.get(line.productId());
+                if (product == null) {
+                    continue; // deleted since it was added
+                }
+                item = OrderItem.builder().product(product).build();
+            }
+            item.setQuantity(line.quantity());
+            item.setVoucher(null);
+            item.setCoupon(null);
+            items.add(item);
+        }
+
+        cart.setItems(items);
+        cart.setPromotions(new ArrayList<>());
+        applyPromotions(cart, snapshot.promotionIds());
+        cartRepository.save(cart);
+    }
+
+    // a detached Cart with the items and the promotions of the snapshot, for the reads and the checks of the cart
+    @Transactional(readOnly = true)
+    public Cart toCart(CartSnapshot snapshot) {
+        Map<Long, Product> products = findProducts(snapshot.lines().stream().map(CartSnapshot.Line::productId).toList());
+
+        List<OrderItem> items = new ArrayList<>();
+        for (CartSnapshot.Line line : snapshot.lines()) {
+            Product product = products.get(line.productId());
+            if (product != null) {
+                items.add(OrderItem.builder().product(product).quantity(line.quantity()).build());
+            }
+        }
+
+        Cart cart = new Cart();
+        cart.setItems(items);
+        cart.setPromotions(new ArrayList<>());
+        applyPromotions(cart, snapshot.promotionIds());
+        return cart;
+    }
+
+    private Map<Long, Product> findProducts(List<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return Map.of();
+        }
+        return productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+
+    // the discounts of the items are derived from the promotions of the cart, as Cart.addVoucher and Cart.addCoupon do
+    private void applyPromotions(Cart cart, List<Long> promotionIds) {
+        if (promotionIds.isEmpty()) {
+            return;
+        }
+        for (Promotion promotion : promotionRepository.findAllById(promotionIds)) {
+            if (promotion instanceof Voucher voucher) {
+                cart.addVoucher(voucher);
+            } else if (promotion instanceof Coupon coupon) {
+                cart.addCoupon(coupon);
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.ecommerce.service.cart;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// state of a cart kept by the CartStore: the quantities of the products in the order they were added
+// and the ids of the vouchers and coupons. immutable, every change returns a new snapshot
+public record CartSnapshot(List<Line> lines, List<Long> promotionIds) {
+
+    public static final CartSnapshot EMPTY = new CartSnapshot(List.of(), List.of());
+
+    public record Line(Long productId, int quantity) {
+    }
+
+    public CartSnapshot {
+        lines = List.copyOf(lines);
+        promotionIds = List.copyOf(promotionIds);
+    }
+
+    public CartSnapshot withItemAdded(Long productId, int quantity) {
+        List<Line> newLines = new ArrayList<>(lines);
+        int index = indexOf(productId);
+        if (index >= 0) {
+            newLines.set(index, new Line(productId, lines.get(index).quantity() + quantity));
+        } else {
+            newLines.add(new Line(productId, quantity));
+        }
+        return new CartSnapshot(newLines, promotionIds);
+    }
+
+    public CartSnapshot withItemRemoved(Long productId) {
+        int index = indexOf(productId);
+        if (index < 0) {
+            throw new IllegalStateException("Product doesn't exist in the cart");
+        }
+        List<Line> newLines = new ArrayList<>(lines);
+        newLines.remove(index);
+        return new CartSnapshot(newLines, promotionIds);
+    }
+
+    public CartSnapshot withPromotionAdded(Long promotionId) {
+        if (promotionIds.contains(promotionId)) {
+            return this;
+        }
+        List<Long> newPromotionIds = new ArrayList<>(promotionIds);
+        newPromotionIds.add(promotionId);
+        return new CartSnapshot(lines, newPromotionIds);
+    }
+
+    public CartSnapshot withPromotionRemoved(Long promotionId) {
+        List<Long> newPromotionIds = new ArrayList<>(promotionIds);
+        newPromotionIds.remove(promotionId);
+        return new CartSnapshot(lines, newPromotionIds);
+    }
+
+    public CartSnapshot withoutPromotions() {
+        return new CartSnapshot(lines, List.of());
+    }
+
+    private int indexOf(Long productId) {
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).productId().equals(productId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.ecommerce.service.cart;
+
+import com.example.ecommerce.domain.Cart;
+import com.example.ecommerce.exception.NotFoundException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+// the carts of the customers, kept in memory and written behind to the Cart / OrderItem tables.
+// a change of a cart only replaces its snapshot and marks it pending, the pending carts are written in the background,
+// so the changes made between two flushes are written once. the cart of a checkout is written in its transaction.
+// the changes of the last flush interval are lost if the instance crashes, and the store assumes a single instance
+@Component
+public class CartStore {
+
+    private final CartPersister cartPersister;
+    // clean and pending carts, bounded. the pending ones are also kept in `pending` until they are written
+    private final Cache<Long, CartSnapshot> snapshots;
+    private final Map<Long, CartSnapshot> pending = new ConcurrentHashMap<>();
+    // the carts of the checkouts not completed yet, they can't be changed nor flushed meanwhile
+    private final Set<Long> checkingOut = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock[] locks;
+
+    public CartStore(CartPersister cartPersister,
+                     @Value("${cart-store.max-carts:100000}") long maxCarts,
+                     @Value("${cart-store.expire-after-access-minutes:30}") long expireAfterAccessMinutes,
+                     @Value("${cart-store.lock-stripes:256}") int numberOfLocks) {
+        this.cartPersister = cartPersister;
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(maxCarts)
+                .expireAfterAccess(Duration.ofMinutes(expireAfterAccessMinutes))
+                .build();
+        this.locks = new ReentrantLock[numberOfLocks];
+        for (int i = 0; i < numberOfLocks; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public CartSnapshot get(Long customerId) {
+        CartSnapshot snapshot = pending.get(customerId);
+        return snapshot != null ? snapshot : snapshots.get(customerId, cartPersister::load);
+    }
+
+    public Cart getCart(Long customerId) {
+        return cartPersister.toCart(get(customerId));
+    }
+
+    public CartSnapshot update(Long customerId, UnaryOperator<CartSnapshot> change) {
+        ReentrantLock lock = lockOf(customerId);
+        lock.lock();
+        try {
+            if (checkingOut.contains(customerId)) {
+                throw new IllegalStateException("The cart is being checked out, please try again");
+            }
+            CartSnapshot updated = change.apply(get(customerId));
+            snapshots.put(customerId, updated);
+            pending.put(customerId, updated);
+            return updated;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cart-store.flush-interval-ms:2000}")
+    public void flush() {
+        for (Long customerId : pending.keySet()) {
+            ReentrantLock lock = lockOf(customerId);
+            // busy with a checkout or a change, written at the next flush
+            if (!lock.tryLock()) {
+                continue;
+            }
+            try {
+                CartSnapshot snapshot = checkingOut.contains(customerId) ? null : pending.get(customerId);
+                if (snapshot != null) {
+                    cartPersister.write(customerId, snapshot);
+                    pending.remove(customerId, snapshot);
+                }
+            } catch (NotFoundException e) {
+                pending.remove(customerId);
+            } catch (RuntimeException e) {
+                // kept pending, retried at the next flush
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // writes the pending cart in the transaction of the checkout, which then reads it from the tables.
+    // the cart can't be changed or flushed until the checkout ends, and it is read again from the tables once committed.
+    // the lock is only held while the cart is written, the other carts of its stripe don't wait for the checkout
+    public void flushForCheckout(Long customerId) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("The cart must be flushed in the transaction of the checkout");
+        }
+        ReentrantLock lock = lockOf(customerId);
+        lock.lock();
+        try {
+            if (!checkingOut.add(customerId)) {
+                throw new IllegalStateException("The cart is already being checked out");
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    lock.lock();
+                    try {
+                        if (status == STATUS_COMMITTED) {
+                            pending.remove(customerId);
+                            snapshots.invalidate(customerId);
+                        }
+                        checkingOut.remove(customerId);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            });
+
+            CartSnapshot snapshot = pending.get(customerId);
+            if (snapshot != null) {
+                cartPersister.write(customerId, snapshot);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockOf(Long customerId) {
+        return locks[Math.floorMod(customerId.hashCode(), locks.length)];
+    }
+}
@@ -40,9 +40,12 @@ public class CouponSetServiceImpl implements CouponSetService {
         }
                 
         couponSet.setCoupons(new ArrayList<>());
-        couponSet.addItems(request.getQuantity());
+        // the coupons are minted when they are claimed
+        couponSet.setIssued(request.getQuantity());
+        couponSet.setClaimed(0);
+        couponSet.setUsed(0);
 
-        couponSetRepository.save(couponSet); // save couponSet to database, this will cascade save all coupons
+        couponSetRepository.save(couponSet);
     }
 
 
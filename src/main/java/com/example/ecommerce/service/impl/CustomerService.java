@@ -1,5 +1,6 @@
 package com.example.ecommerce.service.impl;
 
+import com.example.ecommerce.aspect.RetryOnConflict;
 import com.example.ecommerce.domain.*;
 import com.example.ecommerce.domain.Order.PaymentMethod;
 import com.example.ecommerce.dto.request.*;
@@ -8,22 +9,29 @@ import com.example.ecommerce.dto.request.order.AddToCartRequest;
 import com.example.ecommerce.dto.request.order.UpdateOrderRequest;
 import com.example.ecommerce.dto.response.*;
 import com.example.ecommerce.exception.NotFoundException;
+import com.example.ecommerce.repository.CouponRepository;
 import com.example.ecommerce.repository.CustomerRepository;
+import com.example.ecommerce.repository.KeysetPager;
 import com.example.ecommerce.repository.PromotionRepository;
+import com.example.ecommerce.repository.VoucherRepository;
+import com.example.ecommerce.service.cart.CartStore;
+import com.example.ecommerce.service.promotion.PromotionEligibility;
+import com.example.ecommerce.service.promotion.PromotionSetCounters;
 import com.example.ecommerce.service.service.*;
 import lombok.AllArgsConstructor;
 import org.springframework.data.domain.*;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static com.example.ecommerce.domain.Order.OrderStatus.*;
-import static com.example.ecommerce.domain.Transaction.TransactionType.IN;
-import static com.example.ecommerce.domain.Transaction.TransactionType.OUT;
 import static com.example.ecommerce.dto.request.order.AddToCartRequest.OrderItemDTO;
+import static com.example.ecommerce.repository.specification.OrderSpecifications.*;
 import static com.example.ecommerce.utils.Utils.isValidCardNumber;
 
 @Service
@@ -39,9 +47,15 @@ public class CustomerService {
     private final NotificationService notificationService;
     private final PaymentInformationService paymentInformationService;
     private final PromotionRepository promotionRepository;
+    private final VoucherRepository voucherRepository;
+    private final CouponRepository couponRepository;
     private final MiniGamePlayingRecordService miniGamePlayingRecordService;
-    private final TransactionService transactionService;
-    private final PromotionService promotionService;
+    private final LedgerService ledgerService;
+    private final KeysetPager keysetPager;
+    private final StoreStatsService storeStatsService;
+    private final InventoryService inventoryService;
+    private final CartStore cartStore;
+    private final PromotionSetCounters promotionSetCounters;
     public void save(Customer customer) {
         customerRepository.save(customer);
     }
@@ -84,52 +98,55 @@ public class CustomerService {
     }
 
     public ResponseEntity<Response> addToCart(User user, AddToCartRequest orderRequest) {
-        Customer customer = findCustomerById(user.getId());
-        Cart cart = customer.getCart();
         OrderItemDTO orderItem = orderRequest.getItem();
-        Product product = productService.findProductById(orderItem.getProductId());
-
-        cart.addItem(product, orderItem.getQuantity());
+        Product product = productService.findProductById(orderItem.getProductId()); // check product exist
 
-        customerRepository.save(customer);
+        cartStore.update(user.getId(), cart -> cart.withItemAdded(product.getId(), orderItem.getQuantity()));
         Response response = Response.builder().status(200).message("Add to cart successfully").data(null).build();
 
         return ResponseEntity.ok(response);
     }
 
     public ResponseEntity<Response> getCartItems(User currentCustomer) {
-        Customer customer = findCustomerById(currentCustomer.getId());
-        Cart cart = customer.getCart();
+        Cart cart = cartStore.getCart(currentCustomer.getId());
         Response response = Response.builder().status(200).message("Get cart items successfully").data(cart.getItems()).build();
 
         return ResponseEntity.ok(response);
     }
 
+    @RetryOnConflict
     @Transactional
     public ResponseEntity<Response> checkout(Long customerId, CheckoutRequest request) {
+        // the changes of the cart not written yet by the cart store
+        cartStore.flushForCheckout(customerId);
         Customer customer = findCustomerById(customerId);
         Cart cart = customer.getCart();
+        // grouped by store and priced once for the whole checkout
+        CartPricing pricing = cart.getPricing();
+        // e.g. a checkout sent again after the first one emptied the cart
+        if (pricing.isEmpty()) {
+            throw new IllegalStateException("Your cart is empty");
+        }
 
         DeliveryPartner deliveryPartner = deliveryPartnerService
                 .findDeliveryPartnerById(request.getDeliveryPartnerId());
         PaymentMethod paymentMethod = PaymentMethod.fromString(request.getPaymentMethod());
 
-        // CHECK ONLINE PAYMENT TO SUBTRACT BALANCE
-        if (paymentMethod.equals(PaymentMethod.ONLINE_PAYMENT)) {
-            double totalAmount = cart.getTotalPrice();
-            // check if customer has enough balance to checkout by online payment method
-            if (customer.getBalance() < totalAmount) {
-                throw new IllegalStateException("Not enough balance to checkout");
-            }
-            customer.setBalance(customer.getBalance() - totalAmount);
+        // take the stock of all the items first, the whole checkout is rolled back if one of them is missing
+        inventoryService.reserve(cart.getOrderItems());
 
+        // CHECK ONLINE PAYMENT TO SUBTRACT BALANCE
+        // a cart fully paid by promotions has nothing to subtract
+        if (paymentMethod.equals(PaymentMethod.ONLINE_PAYMENT) && pricing.total().isPositive()) {
+            Money totalAmount = pricing.total();
+            // the balance is checked and subtracted at once, throws if the customer doesn't have enough
             createOutTransaction(customer, totalAmount);
         }
 
 
         // CREATE ORDER
         // items in the cart are grouped into group by store
-        createOrdersByStore(request, customer, deliveryPartner);
+        createOrdersByStore(request, customer, deliveryPartner, pricing);
 
         // if customer use promotion, set used to true
         if (!cart.getPromotions().isEmpty()) {
@@ -142,6 +159,7 @@ public class CustomerService {
                 promotion.setUsed(true);
             });
             promotionRepository.saveAll(cart.getPromotions());
+            promotionSetCounters.used(cart.getPromotions());
         }
 
         cart.setItems(new ArrayList<>()); // empty the cart of customer after checking out
@@ -155,93 +173,67 @@ public class CustomerService {
     }
 
     private boolean checkAllPromotionAreApplicable(Cart cart) {
-        List<Promotion> promotionList = cart.getPromotions();
-
-        for (Promotion promotion : promotionList) {
-            boolean isUsable = checkIfPromotionUsable(promotion, cart);
-            if (!isUsable) {
-                return false;
-            }
-        }
-
-        return true;
+        return PromotionEligibility.evaluate(cart.getPromotions(), cart.getPricing(), LocalDateTime.now()).allUsable();
     }
 
-    private void createOutTransaction(Customer customer, double totalAmount) {
+    private void createOutTransaction(Customer customer, Money totalAmount) {
         String description = "You have paid " + totalAmount + " for your order";
-        Transaction transaction = Transaction.builder()
-                .user(customer)
-                .amount(totalAmount)
-                .description(description)
-                .transactionType(OUT)
-                .createdAt(LocalDateTime.now())
-                .build();
-        transactionService.save(transaction);
+        ledgerService.debit(customer.getId(), totalAmount, description, null);
     }
 
-    private void createOrdersByStore(CheckoutRequest request, Customer customer, DeliveryPartner deliveryPartner) {
+    // one order per store, all inserted together: the orders, their items and the notifications of the stores
+    // are written in JDBC batches and the stores are only referenced, so the number of statements doesn't grow with the stores
+    private void createOrdersByStore(CheckoutRequest request, Customer customer, DeliveryPartner deliveryPartner, CartPricing pricing) {
         PaymentMethod paymentMethod = PaymentMethod.fromString(request.getPaymentMethod());
-        for (CartStoreItem cartStoreItem : customer.getCart().getItems()) {
-            Store store = storeService.findStoreById(cartStoreItem.getStore().getId());
-            List<OrderItem> items = cartStoreItem.getItems();
-
+        Money shippingFee = deliveryPartner.getShippingFee() == null ? Money.ZERO : deliveryPartner.getShippingFee();
+        List<Order> orders = new ArrayList<>();
+        List<Notification> notifications = new ArrayList<>();
+        List<Long> storeIds = new ArrayList<>();
+        for (CartPricing.StoreGroup storeGroup : pricing.stores()) {
+            storeIds.add(storeGroup.store().getId());
+            Store store = storeService.getStoreReference(storeGroup.store().getId());
+            List<OrderItem> items = new ArrayList<>(storeGroup.items());
+            items.forEach(OrderItem::freezeUnitPrice);
+
+            // the amounts are stored, the order is not priced again from its items
             Order order = Order.builder()
                     .customer(customer)
                     .store(store)
                     .items(items)
+                    .subtotal(storeGroup.subtotal())
+                    .discount(storeGroup.discount())
+                    .totalPrice(storeGroup.total())
+                    .shippingFee(shippingFee)
                     .status(PENDING)
                     .paymentMethod(paymentMethod)
                     .createdAt(LocalDateTime.now())
                     .deliveryPartner(deliveryPartner)
                     .destinationAddress(request.getDestinationAddress())
                     .build();
-
-            // order is the pwning side of the relationship,
-            // and it has the customer field, save it to db will make it appear to the customer's order list
-            orderService.save(order);
-
-            subtractQuantityOfProducts(items);
-
-            sendNotificationForStore(store, order);
-
+            orders.add(order);
+            notifications.add(newOrderNotification(store, customer, order));
         }
-    }
-
-    private void subtractQuantityOfProducts(List<OrderItem> items) {
-        List<Long> productIds = items.stream().map(OrderItem::getProduct).map(ProductBriefInfo::getId).toList();
-        List<Product> products = productService.findProductsByIds(productIds);
 
-        for (Product product : products) {
-            for (OrderItem item : items) {
-                if (item.getProduct().getId().equals(product.getId())) {
-                    product.setQuantity(product.getQuantity() - item.getQuantity());
-                    break;
-                }
-            }
-        }
-
-        productService.saveAll(products);
+        // order is the pwning side of the relationship,
+        // and it has the customer field, save it to db will make it appear to the customer's order list
+        orderService.saveAll(orders);
+        storeStatsService.onOrdersCreated(storeIds);
+        notificationService.sendNotifications(notifications);
     }
 
-    private void sendNotificationForStore(Store store, Order order) {
-        Notification notification = Notification.builder()
-                .content("You have a new order from " + order.getCustomer().getName())
+    private Notification newOrderNotification(Store store, Customer customer, Order order) {
+        return Notification.builder()
+                .content("You have a new order from " + customer.getName())
                 .order(order)
                 .createdAt(LocalDateTime.now())
                 .type(Notification.NotificationType.NEW_ORDER)
                 .isRead(false)
+                .user(store)
                 .build();
-
-        notificationService.sendNotificationToUser(store.getId(), notification);
     }
 
     public ResponseEntity<Response> removeFromCart(User currentCustomer, RemoveFromCartRequest removeFromCartRequest) {
-        Customer customer = findCustomerById(currentCustomer.getId());
-        Cart cart = customer.getCart();
-        Product product = productService.findProductById(removeFromCartRequest.getProductId());
-        cart.removeItem(product);
-
-        customerRepository.save(customer);
+        cartStore.update(currentCustomer.getId(), cart -> cart.withItemRemoved(removeFromCartRequest.getProductId()));
         return ResponseEntity.ok(
                 Response.builder()
                         .status(200)
@@ -253,8 +245,7 @@ public class CustomerService {
     }
 
     public ResponseEntity<Response> previewCart(User currentCustomer) {
-        Customer customer = findCustomerById(currentCustomer.getId());
-        Cart cart = customer.getCart();
+        Cart cart = cartStore.getCart(currentCustomer.getId());
 
         List<OrderItem> previewList = cart.getOrderItemsPreview();
 
@@ -364,20 +355,11 @@ public class CustomerService {
         if (status.equals("ALL")) {
             page = orderService.findAllByCustomerAndCreatedAtBetween(customer, from, to, pageable);
         } else {
-            List<Order.OrderStatus> statuses = new ArrayList<>();
-            // the status of "CANCELLED" is a combination of "CANCELLED_BY_STORE" and "CANCELLED_BY_CUSTOMER
-            if (status.equals("CANCELLED")) {
-                statuses.add(CANCELLED_BY_STORE);
-                statuses.add(CANCELLED_BY_CUSTOMER);
-            } else {
-                Order.OrderStatus orderStatus = fromString(status.toUpperCase());
-                statuses.add(orderStatus);
-            }
-            page = orderService.findAllByCustomerAndStatusInAndCreatedAtBetween(customer, statuses, from, to, pageable);
+            page = orderService.findAllByCustomerAndStatusInAndCreatedAtBetween(customer, toOrderStatuses(status), from, to, pageable);
         }
         PageResponse pageResponse = PageResponse.builder()
                 .totalPages(page.getTotalPages())
-                .content(page.getContent())
+                .content(OrderBriefInfo.from(page.getContent()))
                 .size(page.getSize())
                 .build();
 
@@ -388,6 +370,42 @@ public class CustomerService {
                 .build());
     }
 
+    // cursor pagination, the cursor is null or empty for the first page
+    public ResponseEntity<Response> getOrders(Long id, String cursor, boolean countTotal, Integer elementsPerPage, String status, String filter, String sortBy, LocalDateTime from, LocalDateTime to) {
+        Customer customer = findCustomerById(id);
+
+        Specification<Order> specification = Specification.where(belongsTo(customer))
+                .and(createdBetween(from, to))
+                .and(hasStatusIn(status.equals("ALL") ? null : toOrderStatuses(status)));
+
+        KeysetPager.KeysetPage<Order> page = keysetPager.findPage(Order.class, specification, filter,
+                Sort.Direction.valueOf(sortBy.toUpperCase()), cursor, elementsPerPage, countTotal);
+        PageResponse pageResponse = PageResponse.builder()
+                .totalPages(page.getTotalPages(elementsPerPage))
+                .content(OrderBriefInfo.from(page.getContent()))
+                .size(elementsPerPage)
+                .nextCursor(page.getNextCursor())
+                .build();
+
+        return ResponseEntity.ok(Response.builder()
+                .status(200)
+                .message("Get all orders successfully")
+                .data(pageResponse)
+                .build());
+    }
+
+    private List<Order.OrderStatus> toOrderStatuses(String status) {
+        List<Order.OrderStatus> statuses = new ArrayList<>();
+        // the status of "CANCELLED" is a combination of "CANCELLED_BY_STORE" and "CANCELLED_BY_CUSTOMER
+        if (status.equals("CANCELLED")) {
+            statuses.add(CANCELLED_BY_STORE);
+            statuses.add(CANCELLED_BY_CUSTOMER);
+        } else {
+            statuses.add(fromString(status.toUpperCase()));
+        }
+        return statuses;
+    }
+
 
     public ResponseEntity<Response> deleteReview(Long id, Long reviewId) {
 
@@ -443,6 +461,8 @@ public class CustomerService {
                 .build());
     }
 
+    @RetryOnConflict
+    @Transactional
     public ResponseEntity<Response> topUpBalance(Long customerId, TopUpBalanceRequest request) {
         Customer customer = findCustomerById(customerId);
         PaymentInformation paymentInformation = paymentInformationService.findPaymentInformationById(request.getPaymentInformationId());
@@ -453,9 +473,7 @@ public class CustomerService {
             throw new IllegalStateException("Amount must be greater than 0");
         }
 
-        createInTransaction(customer, request.getAmount());
-        customer.setBalance(customer.getBalance() + request.getAmount());
-        save(customer);
+        createInTransaction(customer, Money.of(request.getAmount()));
         return ResponseEntity.ok(Response.builder()
                 .status(200)
                 .message("Top up balance successfully")
@@ -463,15 +481,9 @@ public class CustomerService {
                 .build());
     }
 
-    private void createInTransaction(Customer customer, Double amount) {
+    private void createInTransaction(Customer customer, Money amount) {
         String message = "Top up " + amount + " VND to your account";
-        Transaction transaction = Transaction.builder()
-                .user(customer)
-                .amount(amount)
-                .description(message)
-                .transactionType(IN)
-                .build();
-        transactionService.save(transaction);
+        ledgerService.credit(customer.getId(), amount, message, null);
     }
 
     public ResponseEntity<Response> getPaymentInformation(Long id) {
@@ -543,27 +555,19 @@ public class CustomerService {
 
     public ResponseEntity<Response> getVouchersAndCouponsToAddToCart(Long id) {
         Customer customer = findCustomerById(id);
-        Cart cart = customer.getCart();
-        List<Promotion> promotions = customer.getVouchersAndCoupons();
-        promotions.removeIf(promotion -> cart.getPromotions().stream().anyMatch(p -> p.getId().equals(promotion.getId()))); // ignore promotions that already in cart
-
-        List<Promotion> usable = new ArrayList<>();
-        List<Promotion> unUsable = new ArrayList<>();
-
-        for (Promotion promotion : promotions) {
-
-            boolean isUsable = checkIfPromotionUsable(promotion, cart);
-            if (isUsable) {
-                usable.add(promotion);
-            } else {
-                unUsable.add(promotion);
-            }
-        }
+        Cart cart = cartStore.getCart(id);
+        LocalDateTime now = LocalDateTime.now();
+        // only the promotions the customer can still use are loaded, the used and expired ones never are
+        List<Promotion> promotions = new ArrayList<>(voucherRepository.findUnusedUnexpiredByCustomerId(customer.getId(), now));
+        promotions.addAll(couponRepository.findUnusedUnexpiredByCustomerId(customer.getId(), now));
+        Set<Long> promotionIdsInCart = cart.getPromotions().stream().map(Promotion::getId).collect(Collectors.toSet());
+        promotions.removeIf(promotion -> promotionIdsInCart.contains(promotion.getId())); // ignore promotions that already in cart
 
+        PromotionEligibility eligibility = PromotionEligibility.evaluate(promotions, cart.getPricing(), now);
 
         Map<String, List> map = new HashMap<>();
-        map.put("usable", usable);
-        map.put("unUsable", unUsable);
+        map.put("usable", eligibility.usable());
+        map.put("unUsable", eligibility.unusable());
 
         return ResponseEntity.ok(Response.builder()
                 .status(200)
@@ -572,31 +576,6 @@ public class CustomerService {
                 .build());
     }
 
-    private boolean checkIfPromotionUsable(Promotion promotion, Cart cart) {
-
-        try {
-            promotionService.checkIfPromotionAndThrowExceptionIfUsable(promotion);
-            // because vouchers can be used for every product
-            if (promotion instanceof Voucher) {
-                return true;
-            } else {
-                Coupon coupon = (Coupon) promotion;
-                boolean productOfStoreInCart = cart.getItems().stream()
-                        .anyMatch(cartItem -> cartItem.getItems()
-                                .stream()
-                                .anyMatch(orderItem -> orderItem.getProduct().getStore().getId().equals(coupon.getStore().getId()
-                                ))
-                        );
-                // because coupon of a store is only usable for products of that store
-                return productOfStoreInCart;
-            }
-
-
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
 
     public ResponseEntity<Response> updateOrderRequest(Long customerId, UpdateOrderRequest request) {
         Customer customer = findCustomerById(customerId);
@@ -633,8 +612,7 @@ public class CustomerService {
     }
 
     public ResponseEntity<Response> getPromotionsInCart(User currentCustomer) {
-        Customer customer = findCustomerById(currentCustomer.getId());
-        Cart cart = customer.getCart();
+        Cart cart = cartStore.getCart(currentCustomer.getId());
 
         Map<String, Promotion> map = new HashMap<>();
         map.put("voucher", null);
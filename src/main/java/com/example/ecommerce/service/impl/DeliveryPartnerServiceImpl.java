@@ -1,6 +1,7 @@
 package com.example.ecommerce.service.impl;
 
 import com.example.ecommerce.domain.DeliveryPartner;
+import com.example.ecommerce.domain.Money;
 import com.example.ecommerce.domain.Notification;
 import com.example.ecommerce.domain.Order;
 import com.example.ecommerce.dto.request.UpdateDeliveryPartnerAccountRequest;
@@ -10,12 +11,15 @@ import com.example.ecommerce.dto.request.order.UpdateOrderRequest;
 import com.example.ecommerce.dto.response.*;
 import com.example.ecommerce.exception.NotFoundException;
 import com.example.ecommerce.repository.DeliveryPartnerRepository;
+import com.example.ecommerce.service.cache.CatalogCache;
 import com.example.ecommerce.service.service.DeliveryPartnerService;
 import com.example.ecommerce.service.service.NotificationService;
 import com.example.ecommerce.service.service.OrderService;
 import com.example.ecommerce.service.service.UserService;
 import com.example.ecommerce.utils.Utils;
 import lombok.AllArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.*;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -40,11 +44,12 @@ public class DeliveryPartnerServiceImpl implements DeliveryPartnerService {
     }
 
     @Override
+    @CacheEvict(value = CatalogCache.DELIVERY_PARTNERS, allEntries = true)
     public ResponseEntity<Response> createDeliveryPartner(CreateDeliveryPartnerRequest request) {
 
         DeliveryPartner deliveryPartner = DeliveryPartner.builder()
                 .description(request.getDescription())
-                .shippingFee(request.getShippingFee())
+                .shippingFee(request.getShippingFee() == null ? null : Money.of(request.getShippingFee()))
                 .build();
 
         deliveryPartner.setName(request.getName());
@@ -70,12 +75,13 @@ public class DeliveryPartnerServiceImpl implements DeliveryPartnerService {
     }
 
     @Override
+    @CacheEvict(value = CatalogCache.DELIVERY_PARTNERS, allEntries = true)
     public ResponseEntity<Response> updateDeliveryPartner(UpdateDeliveryPartnerRequest deliveryPartner) {
         DeliveryPartner existingDeliveryPartner = findDeliveryPartnerById(deliveryPartner.getDeliveryPartnerId());
 
         if (deliveryPartner.getName() != null) existingDeliveryPartner.setName(deliveryPartner.getName());
         if (deliveryPartner.getDescription() != null) existingDeliveryPartner.setDescription(deliveryPartner.getDescription());
-        if (deliveryPartner.getShippingFee() != null) existingDeliveryPartner.setShippingFee(deliveryPartner.getShippingFee());
+        if (deliveryPartner.getShippingFee() != null) existingDeliveryPartner.setShippingFee(Money.of(deliveryPartner.getShippingFee()));
 
         deliveryPartnerRepository.save(existingDeliveryPartner);
         return ResponseEntity.ok(Response.builder()
@@ -86,6 +92,7 @@ public class DeliveryPartnerServiceImpl implements DeliveryPartnerService {
     }
 
     @Override
+    @CacheEvict(value = CatalogCache.DELIVERY_PARTNERS, allEntries = true)
     public ResponseEntity<Response> deleteDeliveryPartnerById(Long deliveryPartnerId) {
         DeliveryPartner existingDeliveryPartner = findDeliveryPartnerById(deliveryPartnerId); // check if delivery partner exists
         deliveryPartnerRepository.deleteById(deliveryPartnerId);
@@ -107,6 +114,7 @@ public class DeliveryPartnerServiceImpl implements DeliveryPartnerService {
     }
 
     @Override
+    @Cacheable(CatalogCache.DELIVERY_PARTNERS)
     public ResponseEntity<Response> getAllDeliveryPartners(Integer pageNumber, Integer elementsPerPage) {
         Pageable pageable = PageRequest.of(pageNumber, elementsPerPage);
         Page<DeliveryPartner> deliveryPartners = deliveryPartnerRepository.findAll(pageable);
@@ -140,7 +148,7 @@ public class DeliveryPartnerServiceImpl implements DeliveryPartnerService {
         }
 
         PageResponse pageResponse = PageResponse.builder()
-                .content(page.getContent())
+                .content(OrderBriefInfo.from(page.getContent()))
                 .totalPages(page.getTotalPages())
                 .size(page.getSize())
                 .build();
@@ -210,12 +218,13 @@ public class DeliveryPartnerServiceImpl implements DeliveryPartnerService {
     }
 
     @Override
+    @CacheEvict(value = CatalogCache.DELIVERY_PARTNERS, allEntries = true)
     public ResponseEntity<Response> updateAccount(Long id, UpdateDeliveryPartnerAccountRequest updateAccountRequest) {
 
         DeliveryPartner deliveryPartner = findDeliveryPartnerById(id);
 
         if (updateAccountRequest.getDescription() != null) deliveryPartner.setDescription(updateAccountRequest.getDescription());
-        if (updateAccountRequest.getShippingFee() != null) deliveryPartner.setShippingFee(updateAccountRequest.getShippingFee());
+        if (updateAccountRequest.getShippingFee() != null) deliveryPartner.setShippingFee(Money.of(updateAccountRequest.getShippingFee()));
         if (updateAccountRequest.getAvatar() != null) deliveryPartner.setAvatar(updateAccountRequest.getAvatar());
 
         deliveryPartnerRepository.save(deliveryPartner);
@@ -0,0 +1,142 @@
+package com.example.ecommerce.service.impl;
+
+import com.example.ecommerce.aspect.RetryOnConflict;
+import com.example.ecommerce.domain.IdempotencyRecord;
+import com.example.ecommerce.dto.response.Response;
+import com.example.ecommerce.repository.IdempotencyRecordRepository;
+import com.example.ecommerce.service.service.IdempotencyService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+// the first request with a key claims it, runs and records its response; the retries with the same key get the recorded
+// response back without running again. a request that fails releases the key, so that it can be retried.
+// the response is recorded in the transaction of the action, so a request that stopped after its action committed
+// is never run again by the request taking over its claim.
+// must be called outside of any transaction, the claim is committed before the action starts
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration timeToLive;
+    // a claim older than that is considered abandoned (e.g. the server stopped during the request) and can be taken over
+    private final Duration claimTimeout;
+
+    public IdempotencyServiceImpl(IdempotencyRecordRepository idempotencyRecordRepository, ObjectMapper objectMapper,
+                                  TransactionTemplate transactionTemplate,
+                                  @Value("${idempotency.ttl-hours:24}") long timeToLiveHours,
+                                  @Value("${idempotency.claim-timeout-seconds:60}") long claimTimeoutSeconds) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.timeToLive = Duration.ofHours(timeToLiveHours);
+        this.claimTimeout = Duration.ofSeconds(claimTimeoutSeconds);
+    }
+
+    // the conflicts of the action are retried here, around its transaction
+    @Override
+    @RetryOnConflict
+    public ResponseEntity<Response> execute(String operation, Long userId, String idempotencyKey, Object request,
+                                            Supplier<ResponseEntity<Response>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("The idempotency key must not be longer than " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String id = operation + ":" + userId + ":" + idempotencyKey;
+        int requestHash = Objects.hashCode(request);
+        String claimToken = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+
+        Optional<IdempotencyRecord> existing = idempotencyRecordRepository.findById(id);
+        boolean claimed;
+        if (existing.isEmpty()) {
+            claimed = idempotencyRecordRepository.insertClaim(id, requestHash, claimToken, now, now.plus(timeToLive)) == 1;
+        } else if (isExpired(existing.get(), now) || isAbandoned(existing.get(), now)) {
+            claimed = idempotencyRecordRepository.replaceClaim(id, existing.get().getClaimToken(), requestHash, claimToken, now, now.plus(timeToLive)) == 1;
+        } else {
+            return replay(existing.get(), requestHash);
+        }
+        if (!claimed) {
+            // another request with the same key claimed it in the meantime
+            throw new IllegalStateException("A request with this idempotency key is still being processed");
+        }
+
+        try {
+            return transactionTemplate.execute(status -> {
+                ResponseEntity<Response> response = action.get();
+                Response body = response.getBody();
+                if (idempotencyRecordRepository.complete(id, claimToken, response.getStatusCode().value(),
+                        body == null ? null : body.getMessage(), body == null ? null : toJson(body.getData())) == 0) {
+                    // taken over as stale in the meantime, rolled back so that only the other request is kept
+                    throw new IllegalStateException("A request with this idempotency key is still being processed");
+                }
+                return response;
+            });
+        } catch (RuntimeException e) {
+            idempotencyRecordRepository.release(id, claimToken);
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:600000}")
+    public void deleteExpiredRecords() {
+        idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    private ResponseEntity<Response> replay(IdempotencyRecord record, int requestHash) {
+        if (record.getRequestHash() != requestHash) {
+            throw new IllegalArgumentException("The idempotency key was already used for another request");
+        }
+        if (!record.isCompleted()) {
+            throw new IllegalStateException("A request with this idempotency key is still being processed");
+        }
+        return ResponseEntity.status(record.getResponseStatus()).body(Response.builder()
+                .status(record.getResponseStatus())
+                .message(record.getResponseMessage())
+                .data(fromJson(record.getResponseData()))
+                .build());
+    }
+
+    private boolean isExpired(IdempotencyRecord record, LocalDateTime now) {
+        return record.getExpiresAt().isBefore(now);
+    }
+
+    private boolean isAbandoned(IdempotencyRecord record, LocalDateTime now) {
+        return !record.isCompleted() && record.getClaimedAt().plus(claimTimeout).isBefore(now);
+    }
+
+    // a response that can't be serialized is recorded without its data, the action is not rolled back for it
+    private String toJson(Object data) {
+        try {
+            return objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private Object fromJson(String data) {
+        try {
+            return data == null ? null : objectMapper.readValue(data, Object.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read the recorded response: " + e.getMessage());
+        }
+    }
+}
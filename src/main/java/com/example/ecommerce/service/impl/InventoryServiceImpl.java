@@ -0,0 +1,75 @@
+package com.example.ecommerce.service.impl;
+
+import com.example.ecommerce.domain.OrderItem;
+import com.example.ecommerce.repository.ProductRepository;
+import com.example.ecommerce.service.cache.CatalogChangedEvent;
+import com.example.ecommerce.service.inventory.HotStockCounters;
+import com.example.ecommerce.service.service.InventoryService;
+import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// the stock is changed with conditional updates instead of loading the products and saving them back,
+// which lost the concurrent updates of the same product and let the quantity go below 0.
+// the products are updated in the order of their ids, so two checkouts of the same products can't deadlock,
+// and a missing quantity throws in the transaction of the caller, which rolls back the products reserved before it.
+// the products in hot stock mode are taken from HotStockCounters instead
+@Service
+@AllArgsConstructor
+public class InventoryServiceImpl implements InventoryService {
+    private final ProductRepository productRepository;
+    private final HotStockCounters hotStockCounters;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    @Transactional
+    public void reserve(Collection<OrderItem> items) {
+        List<Long> changedProductIds = new ArrayList<>();
+        quantitiesByProduct(items).forEach((productId, quantity) -> {
+            if (hotStockCounters.reserve(productId, quantity)) {
+                return; // the quantity of the product changes with the next flush of the journal
+            }
+            if (productRepository.reserveStock(productId, quantity) > 0) {
+                changedProductIds.add(productId);
+                return;
+            }
+            // the mode may have been enabled while the update waited for the lock of the row
+            if (!hotStockCounters.reserve(productId, quantity)) {
+                throw new IllegalStateException("Not enough quantity left for product id: " + productId);
+            }
+        });
+        eventPublisher.publishEvent(CatalogChangedEvent.ofProducts(changedProductIds));
+    }
+
+    @Override
+    @Transactional
+    public void release(Collection<OrderItem> items) {
+        List<Long> changedProductIds = new ArrayList<>();
+        quantitiesByProduct(items).forEach((productId, quantity) -> {
+            if (!hotStockCounters.release(productId, quantity)) {
+                // a deleted product has nothing to give back
+                productRepository.releaseStock(productId, quantity);
+                changedProductIds.add(productId);
+            }
+        });
+        eventPublisher.publishEvent(CatalogChangedEvent.ofProducts(changedProductIds));
+    }
+
+    private Map<Long, Integer> quantitiesByProduct(Collection<OrderItem> items) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (OrderItem item : items) {
+            if (item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("The quantity of an item must be positive");
+            }
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.ecommerce.service.impl;
+
+import com.example.ecommerce.domain.Money;
+import com.example.ecommerce.domain.Transaction;
+import com.example.ecommerce.repository.AccountBalanceRepository;
+import com.example.ecommerce.repository.TransactionRepository;
+import com.example.ecommerce.repository.UserRepository;
+import com.example.ecommerce.service.cache.BalanceChangedEvent;
+import com.example.ecommerce.service.service.LedgerService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static com.example.ecommerce.domain.Transaction.TransactionType.IN;
+import static com.example.ecommerce.domain.Transaction.TransactionType.OUT;
+
+// the balances are changed by appending transactions instead of writing the user rows.
+// a debit is applied right away, since the balance must be checked, with a conditional update of the account balance.
+// so is a credit the customer waits for (a top-up, a refund), it must be spendable as soon as it is committed.
+// the income of the stores and the delivery partners is only appended (creditLater), and applied in batches
+// by a single scheduled writer, so that a store receiving the money of many delivered orders at once
+// has its balance row updated once per batch
+@Service
+public class LedgerServiceImpl implements LedgerService {
+
+    private final TransactionRepository transactionRepository;
+    private final AccountBalanceRepository accountBalanceRepository;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int applyBatchSize;
+
+    public LedgerServiceImpl(TransactionRepository transactionRepository, AccountBalanceRepository accountBalanceRepository,
+                             UserRepository userRepository, ApplicationEventPublisher eventPublisher,
+                             @Value("${ledger.apply-batch-size:1000}") int applyBatchSize) {
+        this.transactionRepository = transactionRepository;
+        this.accountBalanceRepository = accountBalanceRepository;
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.applyBatchSize = applyBatchSize;
+    }
+
+    @Override
+    @Transactional
+    public Transaction credit(Long userId, Money amount, String description, String idempotencyKey) {
+        Optional<Transaction> recorded = findRecorded(idempotencyKey);
+        if (recorded.isPresent()) {
+            return recorded.get();
+        }
+        checkAmount(amount);
+        accountBalanceRepository.addToBalance(userId, amount.toBigDecimal());
+
+        Transaction transaction = newTransaction(userId, amount, IN, description, idempotencyKey);
+        // the row is locked by the update until the commit, no other change can come in between
+        transaction.setBalanceAfter(Money.of(accountBalanceRepository.findBalanceByUserId(userId).orElseThrow()));
+        eventPublisher.publishEvent(BalanceChangedEvent.of(List.of(userId)));
+        return transactionRepository.save(transaction);
+    }
+
+    @Override
+    @Transactional
+    public Transaction creditLater(Long userId, Money amount, String description, String idempotencyKey) {
+        Optional<Transaction> recorded = findRecorded(idempotencyKey);
+        if (recorded.isPresent()) {
+            return recorded.get();
+        }
+        checkAmount(amount);
+        return transactionRepository.save(newTransaction(userId, amount, IN, description, idempotencyKey));
+    }
+
+    @Override
+    @Transactional
+    public Transaction debit(Long userId, Money amount, String description, String idempotencyKey) {
+        Optional<Transaction> recorded = findRecorded(idempotencyKey);
+        if (recorded.isPresent()) {
+            return recorded.get();
+        }
+        checkAmount(amount);
+        accountBalanceRepository.createIfMissing(userId);
+        if (accountBalanceRepository.subtractFromBalance(userId, amount.toBigDecimal()) == 0) {
+            throw new IllegalStateException("Not enough balance");
+        }
+
+        Transaction transaction = newTransaction(userId, amount, OUT, description, idempotencyKey);
+        // the row is locked by the update until the commit, no other change can come in between
+        transaction.setBalanceAfter(Money.of(accountBalanceRepository.findBalanceByUserId(userId).orElseThrow()));
+        return transactionRepository.save(transaction);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${ledger.apply-interval-ms:500}")
+    @Transactional
+    public void applyPendingCredits() {
+        List<Transaction> pending = transactionRepository.findAllByBalanceAfterIsNullOrderByIdAsc(PageRequest.of(0, applyBatchSize));
+        Map<Long, List<Transaction>> byUser = new TreeMap<>();
+        for (Transaction transaction : pending) {
+            byUser.computeIfAbsent(transaction.getUser().getId(), userId -> new ArrayList<>()).add(transaction);
+        }
+
+        byUser.forEach((userId, transactions) -> {
+            Money total = Money.ofMinorUnits(transactions.stream().mapToLong(transaction -> transaction.getAmount().getMinorUnits()).sum());
+            accountBalanceRepository.addToBalance(userId, total.toBigDecimal());
+            // the balance after each transaction, in the order they were recorded
+            Money balance = Money.of(accountBalanceRepository.findBalanceByUserId(userId).orElseThrow()).minus(total);
+            for (Transaction transaction : transactions) {
+                balance = balance.plus(transaction.getAmount());
+                transaction.setBalanceAfter(balance);
+            }
+        });
+        // the stores cached with their balance before it
+        if (!byUser.isEmpty()) {
+            eventPublisher.publishEvent(BalanceChangedEvent.of(byUser.keySet()));
+        }
+    }
+
+    private Optional<Transaction> findRecorded(String idempotencyKey) {
+        return idempotencyKey == null ? Optional.empty() : transactionRepository.findByIdempotencyKey(idempotencyKey);
+    }
+
+    private void checkAmount(Money amount) {
+        if (!amount.isPositive()) {
+            throw new IllegalArgumentException("The amount of a transaction must be positive");
+        }
+    }
+
+    private Transaction newTransaction(Long userId, Money amount, Transaction.TransactionType type, String description, String idempotencyKey) {
+        return Transaction.builder()
+                .user(userRepository.getReferenceById(userId))
+                .amount(amount)
+                .transactionType(type)
+                .description(description)
+                .idempotencyKey(idempotencyKey)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -1,34 +1,104 @@
 package com.example.ecommerce.service.impl;
 
-import com.example.ecommerce.domain.Customer;
 import com.example.ecommerce.domain.MiniGamePlayingRecord;
+import com.example.ecommerce.repository.CustomerRepository;
 import com.example.ecommerce.repository.MiniGamePlayingRecordRepository;
+import com.example.ecommerce.service.promotion.DailyClaims;
 import com.example.ecommerce.service.service.MiniGamePlayingRecordService;
-import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+// the daily check reads the in-memory bits of DailyClaims.
+// the records are the log of the bits, written behind in batches: the ones still pending when the application
+// stops are lost, and their customers may save a second voucher that day after the restart
 @Service
-@AllArgsConstructor
 public class MiniGamePlayingRecordServiceImpl implements MiniGamePlayingRecordService {
 
     private final MiniGamePlayingRecordRepository miniGamePlayingRecordRepository;
+    private final CustomerRepository customerRepository;
+    private final DailyClaims dailyClaims;
+    private final TransactionTemplate transactionTemplate;
+    private final int flushBatchSize;
+
+    private final Queue<PendingRecord> pending = new ConcurrentLinkedQueue<>();
+
+    public MiniGamePlayingRecordServiceImpl(MiniGamePlayingRecordRepository miniGamePlayingRecordRepository,
+                                            CustomerRepository customerRepository, DailyClaims dailyClaims,
+                                            TransactionTemplate transactionTemplate,
+                                            @Value("${mini-game.flush-batch-size:1000}") int flushBatchSize) {
+        this.miniGamePlayingRecordRepository = miniGamePlayingRecordRepository;
+        this.customerRepository = customerRepository;
+        this.dailyClaims = dailyClaims;
+        this.transactionTemplate = transactionTemplate;
+        this.flushBatchSize = flushBatchSize;
+    }
 
     @Override
     public boolean checkIfCustomerSavedAVoucherToday(Long customerId) {
-        LocalDateTime start = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0).withNano(0);
-        LocalDateTime end = LocalDateTime.now().withHour(23).withMinute(59).withSecond(59).withNano(999999999);
-        return miniGamePlayingRecordRepository.findAllByCustomer_IdAndCreatedAtBetween(customerId, start, end).size() > 0;
+        return dailyClaims.contains(LocalDate.now(), customerId);
     }
 
+    // the customers are already marked, by the FlashClaimEngine which admitted their claims.
+    // logged on the day they were marked on, not the day their batch was saved
     @Override
-    public void saveMiniGamePlayingRecord(Customer customer) {
-        MiniGamePlayingRecord miniGamePlayingRecord = MiniGamePlayingRecord.builder()
-                .customer(customer)
-                .createdAt(LocalDateTime.now())
-                .build();
+    public void saveMiniGamePlayingRecords(List<Admission> admissions) {
+        admissions.forEach(admission -> pending.add(new PendingRecord(admission.customerId(), admission.admittedAt())));
+    }
+
+    // a failed batch is saved again one record at a time. the records which fail while others are saved
+    // (e.g. of a deleted customer) are dropped, instead of failing all the next flushes.
+    // when none can be saved, e.g. the database is down, they all go back to the queue for the next flush
+    @Scheduled(fixedDelayString = "${mini-game.flush-interval-ms:1000}")
+    public void flush() {
+        List<PendingRecord> polled = new ArrayList<>();
+        PendingRecord record;
+        while (polled.size() < flushBatchSize && (record = pending.poll()) != null) {
+            polled.add(record);
+        }
+        if (polled.isEmpty()) {
+            return;
+        }
+        try {
+            save(polled);
+            return;
+        } catch (RuntimeException e) {
+            List<PendingRecord> failed = new ArrayList<>();
+            for (PendingRecord pendingRecord : polled) {
+                try {
+                    save(List.of(pendingRecord));
+                } catch (RuntimeException recordFailure) {
+                    failed.add(pendingRecord);
+                }
+            }
+            if (failed.size() == polled.size()) {
+                pending.addAll(polled);
+                throw e;
+            }
+            if (!failed.isEmpty()) {
+                throw new IllegalStateException("Dropped the mini game records of the customers "
+                        + failed.stream().map(PendingRecord::customerId).toList(), e);
+            }
+        }
+    }
+
+    private void save(List<PendingRecord> records) {
+        transactionTemplate.executeWithoutResult(status -> miniGamePlayingRecordRepository.saveAll(records.stream()
+                .map(pendingRecord -> MiniGamePlayingRecord.builder()
+                        .customer(customerRepository.getReferenceById(pendingRecord.customerId()))
+                        .createdAt(pendingRecord.createdAt())
+                        .build())
+                .toList()));
+    }
 
-        miniGamePlayingRecordRepository.save(miniGamePlayingRecord);
+    private record PendingRecord(Long customerId, LocalDateTime createdAt) {
     }
 }
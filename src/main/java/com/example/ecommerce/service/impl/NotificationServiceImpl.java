@@ -6,16 +6,21 @@ import com.example.ecommerce.dto.request.MarkNotificationsAsRead;
 import com.example.ecommerce.dto.response.PageResponse;
 import com.example.ecommerce.dto.response.Response;
 import com.example.ecommerce.exception.NotFoundException;
+import com.example.ecommerce.repository.KeysetPager;
 import com.example.ecommerce.repository.NotificationRepository;
 import com.example.ecommerce.service.service.NotificationService;
 import com.example.ecommerce.service.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.*;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 
+import static com.example.ecommerce.repository.specification.NotificationSpecifications.belongsTo;
+import static com.example.ecommerce.repository.specification.NotificationSpecifications.isRead;
+
 @Service
 public class NotificationServiceImpl implements NotificationService {
 
@@ -23,6 +28,8 @@ public class NotificationServiceImpl implements NotificationService {
     private NotificationRepository notificationRepository;
     @Autowired
     private UserService userService;
+    @Autowired
+    private KeysetPager keysetPager;
 
     @Override
     public void sendNotificationToUser(Long userId, Notification notification) {
@@ -31,6 +38,12 @@ public class NotificationServiceImpl implements NotificationService {
         notificationRepository.save(notification);
     }
 
+    // the users are already set, inserted in JDBC batches
+    @Override
+    public void sendNotifications(List<Notification> notifications) {
+        notificationRepository.saveAll(notifications);
+    }
+
     @Override
     public ResponseEntity<Response> getNotificationById(User user, Long id) {
         Notification notification = findNotificationById(id);
@@ -109,6 +122,27 @@ public class NotificationServiceImpl implements NotificationService {
                 .build());
     }
 
+    @Override
+    public ResponseEntity<Response> getAllNotificationsByUser(User user, String cursor, boolean countTotal, Integer elementsPerPage, String status, String filter, String sortBy) {
+        Boolean read = status.equalsIgnoreCase("all") ? null : status.equalsIgnoreCase("read");
+        Specification<Notification> specification = Specification.where(belongsTo(user)).and(isRead(read));
+
+        KeysetPager.KeysetPage<Notification> notifications = keysetPager.findPage(Notification.class, specification, filter,
+                Sort.Direction.valueOf(sortBy.toUpperCase()), cursor, elementsPerPage, countTotal);
+        PageResponse pageResponse = PageResponse.builder()
+                .content(notifications.getContent())
+                .totalPages(notifications.getTotalPages(elementsPerPage))
+                .size(elementsPerPage)
+                .nextCursor(notifications.getNextCursor())
+                .build();
+
+        return ResponseEntity.ok(Response.builder()
+                .status(200)
+                .message("Get all notifications successfully")
+                .data(pageResponse)
+                .build());
+    }
+
     @Override
     public ResponseEntity<Response> markNotificationsAsRead(User user, MarkNotificationsAsRead request) {
 
@@ -1,5 +1,6 @@
 package com.example.ecommerce.service.impl;
 
+import com.example.ecommerce.aspect.RetryOnConflict;
 import com.example.ecommerce.domain.*;
 
 
@@ -7,9 +8,11 @@ import com.example.ecommerce.dto.request.order.UpdateOrderRequest;
 import com.example.ecommerce.dto.response.Response;
 import com.example.ecommerce.exception.NotFoundException;
 import com.example.ecommerce.repository.OrderRepository;
+import com.example.ecommerce.service.cache.CatalogChangedEvent;
 import com.example.ecommerce.service.service.*;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -19,7 +22,6 @@ import java.util.*;
 
 import static com.example.ecommerce.domain.Order.*;
 import static com.example.ecommerce.domain.Order.OrderStatus.*;
-import static com.example.ecommerce.domain.Transaction.TransactionType.IN;
 
 @AllArgsConstructor
 @Service
@@ -29,19 +31,23 @@ public class OrderServiceImpl implements OrderService {
 
     private final OrderRepository orderRepository;
     private final NotificationService notificationService;
-    private final UserService userService;
     private final ProductService productService;
-    private final TransactionService transactionService;
+    private final LedgerService ledgerService;
+    private final StoreStatsService storeStatsService;
+    private final InventoryService inventoryService;
+    private final ApplicationEventPublisher eventPublisher;
     public Order findOrderById(Long orderId) {
         return orderRepository.findById(orderId)
                 .orElseThrow(() -> new NotFoundException("Order not found"));
     }
 
     @Override
+    @RetryOnConflict
     @Transactional
     public ResponseEntity<Response> updateOrder(UpdateOrderRequest request) {
         Order order = findOrderById(request.getOrderId());
 
+        storeStatsService.onOrderStatusChanged(order.getStore().getId(), order.getStatus(), request.getStatus());
         order.setStatus(request.getStatus());
         if (request.getStatus().equals(DELIVERED)) {
             handleWhenOrderIsDelivered(order);
@@ -62,40 +68,18 @@ public class OrderServiceImpl implements OrderService {
     @Override
     public void handleWhenOrderIsCancelled(Order order) {
         // increase the product quantity back, since the order has been cancelled
-        List<Long> productIds = order.getItems().stream().map(orderItem -> orderItem.getProduct().getId()).toList();
-        List<Product> products = productService.findProductsByIds(productIds);
-
-        for (Product product : products) {
-            int checkoutQuantity = order.getItems()
-                    .stream()
-                    .filter(orderItem -> orderItem.getProduct().getId().equals(product.getId()))
-                    .mapToInt(OrderItem::getQuantity)
-                    .sum();
-            product.setQuantity(product.getQuantity() + checkoutQuantity);
-        }
-        productService.saveAll(products);
+        inventoryService.release(order.getItems());
 
-
-        if (order.getPaymentMethod().equals(PaymentMethod.ONLINE_PAYMENT)) {
+        // an order fully paid by promotions has nothing to refund
+        if (order.getPaymentMethod().equals(PaymentMethod.ONLINE_PAYMENT) && order.getTotalPrice().isPositive()) {
             // refund the money to customer if the order is cancelled and the payment method is online payment
-            createRefundTransaction(order.getCustomer().getId(), order.getTotalPrice());
-            User customer = userService.findUserById(order.getCustomer().getId());
-            customer.setBalance(customer.getBalance() + order.getTotalPrice());
-            userService.save(customer);
+            createRefundTransaction(order);
         }
     }
 
-    private void createRefundTransaction(long customerId, double totalPrice) {
-        User customer = userService.findUserById(customerId);
-        String description = "You have received a refund of " + totalPrice + " from order cancellation";
-        Transaction transaction = Transaction.builder()
-                .user(customer)
-                .amount(totalPrice)
-                .transactionType(IN)
-                .description(description)
-                .createdAt(LocalDateTime.now())
-                .build();
-        transactionService.save(transaction);
+    private void createRefundTransaction(Order order) {
+        String description = "You have received a refund of " + order.getTotalPrice() + " from order cancellation";
+        ledgerService.credit(order.getCustomer().getId(), order.getTotalPrice(), description, "refund:order:" + order.getId());
     }
     @Transactional
     @Override
@@ -113,15 +97,21 @@ public class OrderServiceImpl implements OrderService {
             product.setSold(product.getSold() + checkoutQuantity);
         }
         productService.saveAll(products);
+        storeStatsService.onProductsSold(order.getStore().getId(), order.getItems().stream().mapToLong(OrderItem::getQuantity).sum());
+        // the sold quantity of the products has changed, the balance of the store changes with the next applyPendingCredits
+        eventPublisher.publishEvent(new CatalogChangedEvent(productIds, List.of(order.getStore().getId())));
 
         // increase the balance of store and delivery partner
-        User store = userService.findUserById(order.getStore().getId());
-        store.setBalance(store.getBalance() + order.getTotalPrice()); // store get the money from customer
-
-        User deliveryPartner = userService.findUserById(order.getDeliveryPartner().getId());
-        deliveryPartner.setBalance(deliveryPartner.getBalance() + order.getShippingFee()); // delivery partner get the shipping fee from customer
-
-        userService.saveAll(List.of(store, deliveryPartner));
+        // store get the money from customer
+        if (order.getTotalPrice().isPositive()) {
+            ledgerService.creditLater(order.getStore().getId(), order.getTotalPrice(),
+                    "You have received " + order.getTotalPrice() + " for order " + order.getOrderCode(), "income:order:" + order.getId());
+        }
+        // delivery partner get the shipping fee from customer
+        if (order.getShippingFee().isPositive()) {
+            ledgerService.creditLater(order.getDeliveryPartner().getId(), order.getShippingFee(),
+                    "You have received a shipping fee of " + order.getShippingFee() + " for order " + order.getOrderCode(), "shipping-fee:order:" + order.getId());
+        }
 
 
     }
@@ -171,6 +161,17 @@ public class OrderServiceImpl implements OrderService {
         orderRepository.save(order);
     }
 
+    // inserted in JDBC batches, the ids are not IDENTITY ones
+    @Override
+    public void saveAll(List<Order> orders) {
+        for (Order order : orders) {
+            if (order.getOrderCode() == null) {
+                order.setOrderCode(generateRandomString(6));
+            }
+        }
+        orderRepository.saveAll(orders);
+    }
+
     @Override
     public Page<Order> getAll(Example<Order> example, Pageable pageable) {
         return orderRepository.findAll(example, pageable);
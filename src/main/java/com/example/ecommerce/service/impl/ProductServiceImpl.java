@@ -4,22 +4,38 @@ import com.example.ecommerce.domain.Category;
 import com.example.ecommerce.domain.Product;
 import com.example.ecommerce.domain.Review;
 import com.example.ecommerce.domain.Store;
+import com.example.ecommerce.dto.request.product.ProductFilterRequest;
 import com.example.ecommerce.dto.request.product.UpdateProductRequest;
 import com.example.ecommerce.dto.response.PageResponse;
 import com.example.ecommerce.dto.response.ProductBriefInfo;
 import com.example.ecommerce.dto.response.ProductDetailedInfo;
 import com.example.ecommerce.dto.response.Response;
 import com.example.ecommerce.exception.NotFoundException;
+import com.example.ecommerce.repository.KeysetPager;
 import com.example.ecommerce.repository.ProductRepository;
 import com.example.ecommerce.repository.StoreRepository;
+import com.example.ecommerce.service.cache.CatalogCache;
+import com.example.ecommerce.service.cache.CatalogChangedEvent;
+import com.example.ecommerce.service.search.ProductFacetIndex;
+import com.example.ecommerce.service.search.ProductSearchIndex;
 import com.example.ecommerce.service.service.ProductService;
 import com.example.ecommerce.service.service.ReviewService;
+import com.example.ecommerce.service.service.StoreStatsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.example.ecommerce.repository.specification.ProductSpecifications.*;
 
 @Service
 public class ProductServiceImpl implements ProductService {
@@ -32,6 +48,21 @@ public class ProductServiceImpl implements ProductService {
 
     @Autowired
     private ReviewService reviewService;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private KeysetPager keysetPager;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private StoreStatsService storeStatsService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     public Product findProductById(Long productId) {
         return productRepository.findById(productId)
                 .orElseThrow(() -> new NotFoundException("Product not found"));
@@ -46,7 +77,12 @@ public class ProductServiceImpl implements ProductService {
     public ResponseEntity<Response> searchProduct(String keyword, Integer pageNumber, Integer elementsPerPage) {
 
         Pageable pageable = PageRequest.of(pageNumber, elementsPerPage);
-        Page<Product> products = productRepository.findByNameContainingIgnoreCase(keyword, pageable);
+        Page<Product> products;
+        if (productSearchIndex.isEnabled()) {
+            products = searchProductInIndex(keyword, pageable);
+        } else {
+            products = productRepository.findByNameContainingIgnoreCase(keyword, pageable);
+        }
 
         PageResponse pageResponse = PageResponse.builder()
                 .content(ProductBriefInfo.from(products.getContent()))
@@ -61,6 +97,23 @@ public class ProductServiceImpl implements ProductService {
                 .build());
     }
 
+    private Page<Product> searchProductInIndex(String keyword, Pageable pageable) {
+        List<Long> rankedIds = productSearchIndex.search(keyword);
+        int from = (int) Math.min(pageable.getOffset(), rankedIds.size());
+        int to = Math.min(from + pageable.getPageSize(), rankedIds.size());
+        List<Long> pageIds = rankedIds.subList(from, to);
+
+        // findAllById doesn't keep the order of the ids, so sort the products back by relevance
+        Map<Long, Product> productsById = new HashMap<>();
+        productRepository.findAllById(pageIds).forEach(product -> productsById.put(product.getId(), product));
+        List<Product> content = pageIds.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+
+        return new PageImpl<>(content, pageable, rankedIds.size());
+    }
+
     @Override
     public ResponseEntity<Response> getReviewByProductId(Long productId, Integer pageNumber, Integer elementsPerPage, String filter, String sortBy) {
         Pageable pageable = PageRequest.of(pageNumber, elementsPerPage, Sort.Direction.valueOf(sortBy.toUpperCase()), filter);
@@ -97,6 +150,7 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
+    @Cacheable(CatalogCache.PRODUCT_CATEGORIES)
     public ResponseEntity<Response> getAllProductCategories() {
         Category[] categories = Category.values();
         return ResponseEntity.ok(Response.builder()
@@ -116,11 +170,28 @@ public class ProductServiceImpl implements ProductService {
         productRepository.saveAll(products);
     }
 
+    @Override
+    @Transactional
+    public ResponseEntity<Response> rebuildRatingAggregates() {
+        // recompute the rating aggregates of every product from the reviews table,
+        // needed once for the products created before the aggregates existed
+        int updated = productRepository.rebuildRatingAggregates();
+        return ResponseEntity.ok(Response.builder()
+                .status(200)
+                .message("Rebuild rating aggregates successfully")
+                .data(Map.of("updatedProducts", updated))
+                .build());
+    }
+
 
     @Override
+    @Transactional
     public ResponseEntity<Response> deleteProductById(Long productId) {
         Product product = findProductById(productId); // check if this product exists
+        storeStatsService.onProductDeleted(product);
         deleteById(productId);
+        productSearchIndex.remove(productId);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofProductAndStore(productId, product.getStore().getId()));
         return ResponseEntity.ok(Response.builder()
                 .status(200)
                 .message("Delete product successfully")
@@ -142,6 +213,8 @@ public class ProductServiceImpl implements ProductService {
         if (request.getImages() != null) product.setImages(request.getImages());
 
         productRepository.save(product);
+        productSearchIndex.index(product);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofProduct(product.getId()));
         return ResponseEntity.ok(Response.builder()
                 .status(200)
                 .message("Update product successfully")
@@ -151,6 +224,7 @@ public class ProductServiceImpl implements ProductService {
 
 
     @Override
+    @Cacheable(CatalogCache.PRODUCTS)
     public ResponseEntity<Response> getProductById(Long productId) {
         Product product = findProductById(productId);
         ProductDetailedInfo productDetailedInfo = new ProductDetailedInfo(product);
@@ -162,60 +236,9 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
-    public ResponseEntity<Response> getAllProducts(Integer pageNumber, Integer elementsPerPage, String category, Long storeId, String filter, String sortBy, String status) {
+    public ResponseEntity<Response> getAllProducts(Integer pageNumber, Integer elementsPerPage, ProductFilterRequest filterRequest, String filter, String sortBy) {
         Pageable pageable = PageRequest.of(pageNumber, elementsPerPage, Sort.by(Sort.Direction.valueOf(sortBy.toUpperCase()), filter));
-
-        Store store = null;
-        Category categoryEnum = null;
-
-        if (storeId != null && storeId != 0) {
-            store = storeRepository.findById(storeId).orElseThrow(() -> new NotFoundException("Store not found"));
-        }
-
-        if (category != null && !category.equalsIgnoreCase("all")) {
-            categoryEnum = Category.valueOf(category.toUpperCase());;
-        }
-
-        Page<Product> page;
-
-        if (status.equalsIgnoreCase("ALL")
-            || status.equalsIgnoreCase("SOLD_OUT")
-        ) {
-            Product product = new Product();
-
-            if (categoryEnum != null) {
-                product.setCategory(categoryEnum);
-            }
-
-            if (store != null) {
-                product.setStore(store);
-            }
-
-            if (status.equalsIgnoreCase("SOLD_OUT")){
-                product.setQuantity(0);
-            }
-
-            ExampleMatcher matcher = ExampleMatcher
-                    .matching()
-                    .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING)
-                    .withIgnorePaths("sold");
-
-            Example<Product> example = Example.of(product, matcher);
-            page = productRepository.findAll(example, pageable);
-
-        } else {
-            // when finding all product that have quantity > 0
-            if (categoryEnum != null && store != null) {
-                page = productRepository.findAllByStoreAndCategoryAndQuantityGreaterThan(store, categoryEnum, 0, pageable);
-            } else if (categoryEnum != null ) {
-                page = productRepository.findAllByCategoryAndQuantityGreaterThan(categoryEnum, 0, pageable);
-            } else if (store != null) {
-                page = productRepository.findAllByStoreAndQuantityGreaterThan(store, 0, pageable);
-            } else {
-                page = productRepository.findAllByQuantityGreaterThan(0, pageable);
-            }
-        }
-
+        Page<Product> page = productRepository.findAll(toSpecification(filterRequest), pageable);
 
         List<ProductBriefInfo> productBriefInfos = ProductBriefInfo.from(page.getContent());
         PageResponse pageResponse = PageResponse.builder()
@@ -233,4 +256,46 @@ public class ProductServiceImpl implements ProductService {
 
     }
 
+    @Override
+    public ResponseEntity<Response> getAllProducts(String cursor, boolean countTotal, Integer elementsPerPage, ProductFilterRequest filterRequest, String filter, String sortBy) {
+        KeysetPager.KeysetPage<Product> page = keysetPager.findPage(Product.class, toSpecification(filterRequest), filter,
+                Sort.Direction.valueOf(sortBy.toUpperCase()), cursor, elementsPerPage, countTotal);
+
+        PageResponse pageResponse = PageResponse.builder()
+                .totalPages(page.getTotalPages(elementsPerPage))
+                .size(elementsPerPage)
+                .content(ProductBriefInfo.from(page.getContent()))
+                .nextCursor(page.getNextCursor())
+                .build();
+
+        return ResponseEntity.ok(Response.builder()
+                .status(200)
+                .message("Get all products successfully")
+                .data(pageResponse)
+                .build());
+    }
+
+    @Override
+    public ResponseEntity<Response> getProductFacets(ProductFilterRequest filterRequest) {
+        return ResponseEntity.ok(Response.builder()
+                .status(200)
+                .message("Get product facets successfully")
+                .data(productFacetIndex.facets(filterRequest))
+                .build());
+    }
+
+    private Specification<Product> toSpecification(ProductFilterRequest filterRequest) {
+        Store store = null;
+        if (filterRequest.getStoreId() != null && filterRequest.getStoreId() != 0) {
+            store = storeRepository.findById(filterRequest.getStoreId()).orElseThrow(() -> new NotFoundException("Store not found"));
+        }
+
+        return Specification.where(hasCategoryIn(filterRequest.getCategories()))
+                .and(belongsTo(store))
+                .and(priceBetween(filterRequest.getMinPrice(), filterRequest.getMaxPrice()))
+                .and(ratingAtLeast(filterRequest.getMinRating()))
+                .and(hasStock(filterRequest.getInStock()))
+                .and(isOnSale(filterRequest.getOnSale()));
+    }
+
 }
@@ -7,8 +7,11 @@ import com.example.ecommerce.dto.response.PageResponse;
 import com.example.ecommerce.dto.response.Response;
 import com.example.ecommerce.exception.NotFoundException;
 import com.example.ecommerce.repository.*;
+import com.example.ecommerce.service.cart.CartSnapshot;
+import com.example.ecommerce.service.cart.CartStore;
+import com.example.ecommerce.service.promotion.FlashClaimEngine;
+import com.example.ecommerce.service.promotion.PromotionSetCounters;
 import com.example.ecommerce.service.service.CouponSetService;
-import com.example.ecommerce.service.service.MiniGamePlayingRecordService;
 import com.example.ecommerce.service.service.PromotionService;
 import com.example.ecommerce.service.service.VoucherSetService;
 import jakarta.transaction.Transactional;
@@ -35,7 +38,9 @@ public class PromotionServiceImpl implements PromotionService {
     private final CouponSetService couponSetService;
     private final StoreRepository storeRepository;
     private final CustomerRepository customerRepository;
-    private final MiniGamePlayingRecordService miniGamePlayingRecordService;
+    private final CartStore cartStore;
+    private final PromotionSetCounters promotionSetCounters;
+    private final FlashClaimEngine flashClaimEngine;
 //    private final StoreService storeService;
     @Override
     public ResponseEntity<Response> createVoucherSet(CreatePromotionRequest request) {
@@ -80,11 +85,11 @@ public class PromotionServiceImpl implements PromotionService {
     }
 
     @Override
+    @Transactional
     public ResponseEntity<Response> addVoucherToSet(Long voucherSetId, int quantity) {
-        VoucherSet voucherSet = voucherSetService.findById(voucherSetId);
-        voucherSet.addItems(quantity);
-
-        voucherSetService.save(voucherSet);
+        voucherSetService.findById(voucherSetId); // check voucher set exist
+        promotionSetCounters.issued(voucherSetId, quantity);
+        flashClaimEngine.forget(voucherSetId);
         return ResponseEntity.ok(Response.builder()
                 .status(200)
                 .message("Add voucher to set successfully")
@@ -94,12 +99,8 @@ public class PromotionServiceImpl implements PromotionService {
     @Override
     @Transactional
     public ResponseEntity<Response> subtractVoucherToSet(Long voucherSetId, int quantity) {
-        VoucherSet voucherSet = voucherSetService.findById(voucherSetId);
-        List<Promotion> removedVouchers = voucherSet.subtractVouchers(quantity);
-
-        // since the relationship is bidirectional, we need to remove the voucher both from the list in the voucher set and in the database
-        promotionRepository.deleteAll(removedVouchers);
-        voucherSetService.save(voucherSet);
+        VoucherSet voucherSet = voucherSetService.findById(voucherSetId); // check voucher set exist
+        promotionSetCounters.withdrawn(voucherSet, quantity);
         return ResponseEntity.ok(Response.builder()
                 .status(200)
                 .message("Subtract voucher to set successfully")
@@ -141,6 +142,7 @@ public class PromotionServiceImpl implements PromotionService {
     public ResponseEntity<Response> deleteVoucherById(Long id) {
         Voucher voucher = findVoucherById(id); // check voucher exist
         voucherRepository.delete(voucher);
+        promotionSetCounters.deleted(voucher);
         return ResponseEntity.ok(Response.builder()
                 .status(200)
                 .message("Delete voucher successfully")
@@ -180,13 +182,13 @@ public class PromotionServiceImpl implements PromotionService {
     }
 
     @Override
+    @Transactional
     public ResponseEntity<Response> addCouponToCouponSet(Long storeId, Long couponSetId, int quantity) {
         CouponSet couponSet = couponSetService.findById(couponSetId);
         if (!couponSet.getStore().getId().equals(storeId)) {
             throw new IllegalArgumentException("Coupon set does not belong to this store");
         }
-        couponSet.addItems(quantity);
-        couponSetService.save(couponSet);
+        promotionSetCounters.issued(couponSetId, quantity);
 
         return ResponseEntity.ok(Response.builder()
                 .status(200)
@@ -201,11 +203,7 @@ public class PromotionServiceImpl implements PromotionService {
         if (!couponSet.getStore().getId().equals(storeId)) {
             throw new IllegalArgumentException("Coupon set does not belong to this store");
         }
-        List<Promotion> removed = couponSet.subtractCoupons(quantity);
-
-        // since the relationship is bidirectional, we need to remove the coupon both from the list in the coupon set and in the database
-        promotionRepository.deleteAll(removed);
-        couponSetService.save(couponSet);
+        promotionSetCounters.withdrawn(couponSet, quantity);
 
         return ResponseEntity.ok(Response.builder()
                 .status(200)
@@ -263,6 +261,7 @@ public class PromotionServiceImpl implements PromotionService {
             throw new IllegalArgumentException("Coupon does not belong to this store");
         }
         couponRepository.delete(coupon);
+        promotionSetCounters.deleted(coupon);
 
         return ResponseEntity.ok(Response.builder()
                 .status(200)
@@ -360,11 +359,12 @@ public class PromotionServiceImpl implements PromotionService {
 
         List<VoucherSet> voucherSets = voucherSetService.findAllByExpiredAtAfter(LocalDateTime.now());
 
-        voucherSets.stream().filter(v -> v.getQuantityAvailable() > 0).collect(Collectors.toList());
+        // from the counters of the sets, their vouchers are not loaded
+        List<VoucherSet> available = voucherSets.stream().filter(v -> v.getQuantityAvailable() > 0).collect(Collectors.toList());
         return ResponseEntity.ok(Response.builder()
                 .status(200)
                 .message("Get mini game vouchers successfully")
-                .data(voucherSets)
+                .data(available)
                 .build());
 
     }
@@ -389,7 +389,7 @@ public class PromotionServiceImpl implements PromotionService {
                 .build());
     }
 
-    @Transactional
+    // not transactional, the vouchers are claimed by the batches of the FlashClaimEngine
     @Override
     public ResponseEntity<Response> saveVoucherOrCoupon(Long customerId, Long promotionSetId) {
         Customer customer = getCustomerById(customerId);
@@ -397,43 +397,28 @@ public class PromotionServiceImpl implements PromotionService {
         PromotionSet promotionSet = promotionSetRepository.findById(promotionSetId)
                 .orElseThrow(() -> new NotFoundException("Promotion set not found"));
 
+        if (promotionSet.getExpiredAt().isBefore(LocalDateTime.now())) {
+            throw new IllegalArgumentException("Promotion is expired");
+        }
 
+        // the customer can only save one voucher per day (through playing the mini game)
+        if (promotionSet instanceof VoucherSet voucherSet) {
+            flashClaimEngine.claim(voucherSet, customer.getId());
+        } else {
+            // since the promotion is the owner of the relationship, saving it will update the customer's promotion list
+            promotionSetCounters.claim(promotionSet, customer);
+        }
 
-
-            if (promotionSet.getExpiredAt().isBefore(LocalDateTime.now())) {
-                throw new IllegalArgumentException("Promotion is expired");
-            }
-
-            // the customer can only save one voucher per day (through playing the mini game)
-            if (promotionSet instanceof VoucherSet) {
-                boolean checkIfCustomerSavedAVoucherToday = miniGamePlayingRecordService.checkIfCustomerSavedAVoucherToday(customer.getId());
-                if (checkIfCustomerSavedAVoucherToday) {
-                    throw new IllegalArgumentException("You has already saved a voucher today");
-                } else {
-                    // save the mini game playing record
-                    miniGamePlayingRecordService.saveMiniGamePlayingRecord(customer);
-                }
-            }
-
-            // get an unused promotion from the promotion set (it can be a voucher or a coupon)
-            Promotion unUsedPromotion = promotionSet.getAnUnUsedItem();
-            unUsedPromotion.setCustomer(customer);
-            promotionRepository.save(unUsedPromotion); // since the promotion is the owner of the relationship, saving it will update the customer's promotion list
-
-
-
-
-            return ResponseEntity.ok(Response.builder()
-                    .status(200)
-                    .message("Save promotion successfully")
-                    .data(null)
-                    .build());
+        return ResponseEntity.ok(Response.builder()
+                .status(200)
+                .message("Save promotion successfully")
+                .data(null)
+                .build());
     }
 
     @Override
     public ResponseEntity<Response> addVouchersCouponsToCart(Long customerId, List<Long> promotionIds) {
-        Customer customer = getCustomerById(customerId);
-        Cart cart = customer.getCart();
+        Cart cart = cartStore.getCart(customerId);
         List<Promotion> promotions = promotionRepository.findAllById(promotionIds);
 
 
@@ -477,7 +462,13 @@ public class PromotionServiceImpl implements PromotionService {
 
         }
 
-        customerRepository.save(customer);
+        List<Long> addedPromotionIds = promotions.stream().map(Promotion::getId).toList();
+        cartStore.update(customerId, snapshot -> {
+            for (Long promotionId : addedPromotionIds) {
+                snapshot = snapshot.withPromotionAdded(promotionId);
+            }
+            return snapshot;
+        });
 
         return ResponseEntity.ok(Response.builder()
                 .status(200)
@@ -528,8 +519,7 @@ public class PromotionServiceImpl implements PromotionService {
 
     @Override
     public ResponseEntity<Response> removeVouchersCouponsToCart(Long customerId, Long promotionId) {
-        Customer customer = getCustomerById(customerId);
-        Cart cart = customer.getCart();
+        Cart cart = cartStore.getCart(customerId);
         Promotion promotion = findPromotionById(promotionId);
 
         if (!promotion.getCustomer().getId().equals(customerId)) {
@@ -542,13 +532,8 @@ public class PromotionServiceImpl implements PromotionService {
             throw new IllegalArgumentException("Promotion does not exist in cart");
         }
 
-        if (promotion instanceof Voucher) {
-            cart.removeVoucher((Voucher) promotion);
-        } else if (promotion instanceof Coupon) {
-            cart.removeCoupon((Coupon) promotion);
-        }
-
-        customerRepository.save(customer);
+        // the discounts of the items are derived from the promotions left in the cart
+        cartStore.update(customerId, snapshot -> snapshot.withPromotionRemoved(promotionId));
         return ResponseEntity.ok(Response.builder()
                 .status(200)
                 .message("Remove promotion from cart successfully")
@@ -557,11 +542,7 @@ public class PromotionServiceImpl implements PromotionService {
 
     @Override
     public ResponseEntity<Response> removeAllVouchersCouponsToCart(Long id) {
-        Customer customer = getCustomerById(id);
-        Cart cart = customer.getCart();
-
-        cart.setPromotions(new ArrayList<>());
-        customerRepository.save(customer);
+        cartStore.update(id, CartSnapshot::withoutPromotions);
         return ResponseEntity.ok(Response.builder()
                 .status(200)
                 .message("Remove all promotions from cart successfully")
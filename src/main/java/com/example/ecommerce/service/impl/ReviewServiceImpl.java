@@ -5,13 +5,18 @@ import com.example.ecommerce.domain.Product;
 import com.example.ecommerce.domain.Review;
 import com.example.ecommerce.domain.User;
 import com.example.ecommerce.exception.NotFoundException;
+import com.example.ecommerce.repository.ProductRepository;
 import com.example.ecommerce.repository.ReviewRepository;
+import com.example.ecommerce.service.cache.CatalogChangedEvent;
 import com.example.ecommerce.service.service.ReviewService;
+import com.example.ecommerce.service.service.StoreStatsService;
 import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -19,15 +24,37 @@ import java.util.List;
 @AllArgsConstructor
 public class ReviewServiceImpl implements ReviewService {
     private final ReviewRepository reviewRepository;
+    private final ProductRepository productRepository;
+    private final StoreStatsService storeStatsService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
+    @Transactional
     public void save(Review currentReview) {
+        Long productId = currentReview.getProduct().getId();
+        if (currentReview.getId() == null) {
+            // new review
+            productRepository.addToRatingAggregates(productId, currentReview.getRating(), 1);
+            storeStatsService.onProductRatingChanged(productId, currentReview.getRating(), 1);
+        } else if (currentReview.getPersistedRating() != null && currentReview.getPersistedRating() != currentReview.getRating()) {
+            // only the difference between the new and the old rating is added
+            productRepository.addToRatingAggregates(productId, currentReview.getRating() - currentReview.getPersistedRating(), 0);
+            storeStatsService.onProductRatingChanged(productId, currentReview.getRating() - currentReview.getPersistedRating(), 0);
+        }
         reviewRepository.save(currentReview);
+        currentReview.setPersistedRating(currentReview.getRating());
+        // the reviews and the rating are part of the product details and of the store information
+        eventPublisher.publishEvent(CatalogChangedEvent.ofProductAndStore(productId, currentReview.getProduct().getStore().getId()));
     }
 
     @Override
+    @Transactional
     public void deleteByReviewId(Long reviewId) {
+        Review review = getReviewById(reviewId);
+        productRepository.addToRatingAggregates(review.getProduct().getId(), -review.getPersistedRating(), -1);
+        storeStatsService.onProductRatingChanged(review.getProduct().getId(), -review.getPersistedRating(), -1);
         reviewRepository.deleteById(reviewId);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofProductAndStore(review.getProduct().getId(), review.getProduct().getStore().getId()));
     }
 
     @Override
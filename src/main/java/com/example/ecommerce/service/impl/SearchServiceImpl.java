@@ -59,8 +59,9 @@ public class SearchServiceImpl implements SearchService {
     @Override
     public void saveSearchHistory(User currentUser, String keyword) {
         if (currentUser != null) {
-            // delete the old search history, to avoid duplication
-            searchRepository.deleteByKeyword(keyword);
+            // delete the old search history of the user, to avoid duplication
+            // (the searches of the other users are kept, they count for the popular keywords)
+            searchRepository.deleteByUserAndKeyword(currentUser, keyword);
             Search search = Search.builder()
                     .keyword(keyword)
                     .user(currentUser)
@@ -1,5 +1,6 @@
 package com.example.ecommerce.service.impl;
 
+import com.example.ecommerce.aspect.RetryOnConflict;
 import com.example.ecommerce.domain.*;
 import com.example.ecommerce.domain.Order.OrderStatus;
 import com.example.ecommerce.dto.request.order.UpdateOrderRequest;
@@ -9,11 +10,18 @@ import com.example.ecommerce.dto.request.store.UpdateStoreRequest;
 import com.example.ecommerce.dto.response.*;
 import com.example.ecommerce.exception.NotFoundException;
 import com.example.ecommerce.repository.*;
+import com.example.ecommerce.service.cache.CatalogCache;
+import com.example.ecommerce.service.cache.CatalogChangedEvent;
+import com.example.ecommerce.service.inventory.HotStockCounters;
+import com.example.ecommerce.service.search.ProductSearchIndex;
 import com.example.ecommerce.service.service.NotificationService;
 import com.example.ecommerce.service.service.OrderService;
+import com.example.ecommerce.service.service.StoreStatsService;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -44,10 +52,30 @@ public class StoreService {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private StoreStatsService storeStatsService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private HotStockCounters hotStockCounters;
+
     public void  save(Store store) {
         storeRepository.save(store);
     }
 
+    // for a new store, with its statistics row
+    @Transactional
+    public void create(Store store) {
+        storeRepository.save(store);
+        storeStatsService.createStats(store.getId());
+    }
+
+    @Cacheable(CatalogCache.STORES)
     public ResponseEntity<Response> getStoreInformationById(Long storeId) {
         Store store = findStoreById(storeId);
 
@@ -61,12 +89,18 @@ public class StoreService {
         return ResponseEntity.ok(response);
     }
 
+    // without loading it, to be referenced by another entity
+    public Store getStoreReference(Long storeId) {
+        return storeRepository.getReferenceById(storeId);
+    }
+
     public Store findStoreById(Long storeId) {
         return storeRepository
                 .findById(storeId)
                 .orElseThrow(() -> new NotFoundException("Store not found for storeId: " + storeId));
     }
 
+    @Transactional
     public ResponseEntity<Response> createProduct(Long storeId, CreateProductRequest request) {
 
         Store store = findStoreById(storeId);
@@ -82,6 +116,9 @@ public class StoreService {
                 .build();
 
         productRepository.save(product); // save product to database, since product is the ownind sstoreIde, the store will have this product in the inventory
+        storeStatsService.onProductCreated(storeId);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofProductAndStore(product.getId(), storeId));
+        productSearchIndex.index(product);
         return ResponseEntity.ok(Response.builder()
                 .status(200)
                 .message("Create product successfully")
@@ -89,18 +126,21 @@ public class StoreService {
                 .build());
     }
 
+    @Transactional
     public ResponseEntity<Response> deleteProductById(Long storeId, Long productId) {
         Store store = findStoreById(storeId);
         List<Product> inventory = store.getInventory();
 
-        boolean isExist = inventory.stream().anyMatch(product -> product.getId().equals(productId));
-        if (!isExist) {
-            throw new NotFoundException("Product not found for productId: " + productId);
-        } else {
-            inventory.removeIf(product -> product.getId().equals(productId));
-        }
+        Product deletedProduct = inventory.stream()
+                .filter(product -> product.getId().equals(productId))
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("Product not found for productId: " + productId));
+        inventory.remove(deletedProduct);
+        storeStatsService.onProductDeleted(deletedProduct);
         productRepository.deleteById(productId); // delete product from database (product is the owning side
         storeRepository.save(store); // save store to database (store is the inverse side)
+        productSearchIndex.remove(productId);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofProductAndStore(productId, storeId));
 
         return ResponseEntity.ok(Response.builder()
                 .status(200)
@@ -131,7 +171,7 @@ public class StoreService {
         }
 
         PageResponse pageResponse = PageResponse.builder()
-                .content(page.getContent())
+                .content(OrderBriefInfo.from(page.getContent()))
                 .totalPages(page.getTotalPages())
                 .size(page.getSize())
                 .pageNumber(page.getNumber())
@@ -145,6 +185,7 @@ public class StoreService {
         );
     }
 
+    @RetryOnConflict
     @Transactional
     public ResponseEntity<Response> updateOrder(Long storeId, UpdateOrderRequest request) {
         Store store = findStoreById(storeId);
@@ -225,6 +266,9 @@ public class StoreService {
 
         for (Product product : inventory) {
             if (product.getId().equals(request.getProductId())) {
+                if (product.isHotStock() && !product.getQuantity().equals(request.getQuantity())) {
+                    throw new IllegalStateException("The quantity of a product in hot stock mode can't be changed, disable the mode first");
+                }
                 product.setName(request.getName());
                 product.setDescription(request.getDescription());
                 product.setCategory(request.getCategory());
@@ -232,6 +276,8 @@ public class StoreService {
                 product.setQuantity(request.getQuantity());
                 product.setImages(request.getImages());
                 productRepository.save(product);
+                productSearchIndex.index(product);
+                eventPublisher.publishEvent(CatalogChangedEvent.ofProduct(product.getId()));
             }
         }
 
@@ -242,6 +288,28 @@ public class StoreService {
                 .build());
     }
 
+    @Transactional
+    public ResponseEntity<Response> setHotStock(Long storeId, Long productId, boolean enabled) {
+        Product product = productRepository.findById(productId)
+                .filter(p -> p.getStore().getId().equals(storeId))
+                .orElseThrow(() -> new NotFoundException("Product not found for productId: " + productId));
+        if (product.isHotStock() == enabled) {
+            throw new IllegalStateException("Hot stock mode is already " + (enabled ? "enabled" : "disabled") + " for this product");
+        }
+
+        if (enabled) {
+            hotStockCounters.enable(productId);
+        } else {
+            hotStockCounters.disable(productId);
+        }
+        eventPublisher.publishEvent(CatalogChangedEvent.ofProduct(productId));
+        return ResponseEntity.ok(Response.builder()
+                .status(200)
+                .message((enabled ? "Enable" : "Disable") + " hot stock mode successfully")
+                .data(null)
+                .build());
+    }
+
     public ResponseEntity<Response> searchStore(String keyword, Integer page, Integer elementsPerPage) {
         Pageable pageable = PageRequest.of(page, elementsPerPage);
         Page<Store> pageStore = storeRepository.findByNameContainingIgnoreCase(keyword, pageable);
@@ -297,7 +365,7 @@ public class StoreService {
         List<Product> products = store.getInventory();
 
         List<Product> productsFilterByReview = products.stream()
-                .filter(product -> product.getReviews().size() > 0)
+                .filter(product -> product.getReviewCount() > 0)
                 .collect(Collectors.toList());
 
         return ResponseEntity.ok(Response.builder()
@@ -376,6 +444,7 @@ public class StoreService {
         if (updateStoreRequest.getPhoneNumber() != null) store.setPhoneNumber(updateStoreRequest.getPhoneNumber());
         if (updateStoreRequest.getCity() != null) store.setCity(updateStoreRequest.getCity());
         storeRepository.save(store);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofStore(id));
 
         return ResponseEntity.ok(Response.builder()
                 .status(200)
@@ -423,7 +492,7 @@ public class StoreService {
 
         Page<Order> page = orderService.findAll(example, pageable);
         PageResponse pageResponse = PageResponse.builder()
-                .content(page.getContent())
+                .content(OrderBriefInfo.from(page.getContent()))
                 .totalPages(page.getTotalPages())
                 .pageNumber(pageNumber)
                 .size(page.getSize())
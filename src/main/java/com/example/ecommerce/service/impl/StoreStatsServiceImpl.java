@@ -0,0 +1,87 @@
+package com.example.ecommerce.service.impl;
+
+import com.example.ecommerce.domain.Order;
+import com.example.ecommerce.domain.Product;
+import com.example.ecommerce.domain.StoreStats;
+import com.example.ecommerce.dto.response.Response;
+import com.example.ecommerce.repository.StoreStatsRepository;
+import com.example.ecommerce.service.service.StoreStatsService;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Map;
+
+// the updates join the transaction of the caller, so the statistics change together with the data they are computed from
+@Service
+@AllArgsConstructor
+public class StoreStatsServiceImpl implements StoreStatsService {
+    private final StoreStatsRepository storeStatsRepository;
+
+    @Override
+    public void createStats(Long storeId) {
+        storeStatsRepository.save(StoreStats.builder().storeId(storeId).build());
+    }
+
+    @Override
+    @Transactional
+    public void onProductCreated(Long storeId) {
+        storeStatsRepository.addToProductStats(storeId, 1, 0, 0, 0);
+    }
+
+    @Override
+    @Transactional
+    public void onProductDeleted(Product product) {
+        storeStatsRepository.addToProductStats(product.getStore().getId(), -1, -product.getRatingSum(), -product.getReviewCount(), -product.getSold());
+    }
+
+    @Override
+    @Transactional
+    public void onProductRatingChanged(Long productId, double ratingDelta, int reviewCountDelta) {
+        storeStatsRepository.addToRatingsOfProductStore(productId, ratingDelta, reviewCountDelta);
+    }
+
+    @Override
+    @Transactional
+    public void onOrderStatusChanged(Long storeId, Order.OrderStatus oldStatus, Order.OrderStatus newStatus) {
+        if (oldStatus == newStatus) return;
+        if (oldStatus != null) storeStatsRepository.addToOrderCount(storeId, oldStatus.name(), -1);
+        if (newStatus != null) storeStatsRepository.addToOrderCount(storeId, newStatus.name(), 1);
+    }
+
+    @Override
+    @Transactional
+    public void onOrdersCreated(Collection<Long> storeIds) {
+        if (!storeIds.isEmpty()) storeStatsRepository.addPendingOrder(storeIds);
+    }
+
+    @Override
+    @Transactional
+    public void onProductsSold(Long storeId, long quantity) {
+        storeStatsRepository.addToProductStats(storeId, 0, 0, 0, quantity);
+    }
+
+    // the stores created before the statistics table, or by hand in the database
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void createMissingStats() {
+        storeStatsRepository.insertMissingStats();
+    }
+
+    // recomputes every row, e.g. after ProductService.rebuildRatingAggregates
+    @Override
+    @Transactional
+    public ResponseEntity<Response> rebuildStats() {
+        storeStatsRepository.deleteAllInBatch();
+        int updatedStores = storeStatsRepository.insertMissingStats();
+        return ResponseEntity.ok(Response.builder()
+                .status(200)
+                .message("Rebuild store statistics successfully")
+                .data(Map.of("updatedStores", updatedStores))
+                .build());
+    }
+}
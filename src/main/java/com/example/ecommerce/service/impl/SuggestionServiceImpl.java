@@ -0,0 +1,89 @@
+package com.example.ecommerce.service.impl;
+
+import com.example.ecommerce.dto.response.Response;
+import com.example.ecommerce.dto.response.Suggestion;
+import com.example.ecommerce.repository.ProductRepository;
+import com.example.ecommerce.repository.SearchRepository;
+import com.example.ecommerce.repository.StoreRepository;
+import com.example.ecommerce.service.search.PrefixIndex;
+import com.example.ecommerce.service.service.SuggestionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class SuggestionServiceImpl implements SuggestionService {
+
+    @Value("${suggest.elements-per-type:5}")
+    private int elementsPerType;
+
+    @Value("${suggest.max-products:100000}")
+    private int maxProducts;
+
+    @Value("${suggest.max-keywords:10000}")
+    private int maxKeywords;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StoreRepository storeRepository;
+
+    @Autowired
+    private SearchRepository searchRepository;
+
+    // replaced as a whole on every rebuild, the requests read it without locking
+    private volatile SuggestionIndexes indexes = new SuggestionIndexes(
+            PrefixIndex.build(List.of(), 1), PrefixIndex.build(List.of(), 1), PrefixIndex.build(List.of(), 1));
+
+    @Override
+    public ResponseEntity<Response> suggest(String keyword) {
+        SuggestionIndexes current = indexes;
+
+        Map<String, List<Suggestion>> map = new LinkedHashMap<>();
+        map.put("keywords", current.keywords().suggest(keyword));
+        map.put("products", current.products().suggest(keyword));
+        map.put("stores", current.stores().suggest(keyword));
+
+        return ResponseEntity.ok(Response.builder()
+                .status(200)
+                .message("Get suggestions successfully")
+                .data(map)
+                .build());
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${suggest.rebuild-interval-ms:300000}")
+    public void rebuild() {
+        // the most sold products first, so the least sold ones are left out when the catalog is too big
+        List<Suggestion> products = productRepository.findNamesOrderBySoldDesc(PageRequest.of(0, maxProducts))
+                .stream()
+                .map(row -> new Suggestion((Long) row[0], (String) row[1], ((Number) row[2]).longValue()))
+                .toList();
+
+        List<Suggestion> stores = storeRepository.findNamesWithTotalSold()
+                .stream()
+                .map(row -> new Suggestion((Long) row[0], (String) row[1], ((Number) row[2]).longValue()))
+                .toList();
+
+        List<Suggestion> keywords = searchRepository.findKeywordsOrderByCountDesc(PageRequest.of(0, maxKeywords))
+                .stream()
+                .map(row -> new Suggestion(null, (String) row[0], ((Number) row[1]).longValue()))
+                .toList();
+
+        indexes = new SuggestionIndexes(
+                PrefixIndex.build(keywords, elementsPerType),
+                PrefixIndex.build(products, elementsPerType),
+                PrefixIndex.build(stores, elementsPerType));
+    }
+
+    private record SuggestionIndexes(PrefixIndex keywords, PrefixIndex products, PrefixIndex stores) {
+    }
+}
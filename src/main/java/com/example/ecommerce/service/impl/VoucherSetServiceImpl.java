@@ -42,9 +42,11 @@ public class VoucherSetServiceImpl implements VoucherSetService {
         voucherSet.setName(request.getName());
 
         voucherSet.setVouchers(new ArrayList<>());
-        voucherSet.addItems(request.getQuantity());
-        System.out.println(voucherSet.getVouchers().size());
-        voucherSetRepository.save(voucherSet); // save voucherSet to database, this will cascade save all vouchers
+        // the vouchers are minted when they are claimed
+        voucherSet.setIssued(request.getQuantity());
+        voucherSet.setClaimed(0);
+        voucherSet.setUsed(0);
+        voucherSetRepository.save(voucherSet);
 
 
     }
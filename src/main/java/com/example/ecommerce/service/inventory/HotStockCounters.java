@@ -0,0 +1,249 @@
+package com.example.ecommerce.service.inventory;
+
+import com.example.ecommerce.domain.StockJournalEntry;
+import com.example.ecommerce.exception.NotFoundException;
+import com.example.ecommerce.repository.ProductRepository;
+import com.example.ecommerce.repository.StockJournalRepository;
+import com.example.ecommerce.service.cache.CatalogChangedEvent;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// "hot stock" mode of a product, for flash sales: the checkouts take the stock from an in-memory StripedStockCounter
+// instead of updating the row of the product, which would make every checkout of the sale wait for the same row lock.
+// each reservation appends a row to the stock journal in the transaction of the checkout, and the journal is applied
+// to Product.quantity in batches in the background. after a crash the journal left is applied at startup,
+// before the counters are loaded back from the quantities and before the server takes the first checkout.
+// the counters live in this instance, the mode assumes a single instance of the application.
+// enabling publishes the counter before its commit, with the row of the product locked: the checkouts which find it
+// wait for the commit, and the updates of the row which waited for the lock don't take from a product in the mode.
+// disabling waits for the checkouts which took from the counter to complete, then applies their journal
+// with the row of the product locked, so that the checkouts after it read an up to date quantity
+@Component
+public class HotStockCounters {
+
+    private static final long DISABLE_TIMEOUT_SECONDS = 10;
+    private static final long ENABLE_TIMEOUT_SECONDS = 10;
+
+    private final ProductRepository productRepository;
+    private final StockJournalRepository stockJournalRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int numberOfStripes;
+    private final int flushBatchSize;
+
+    private final Map<Long, HotStock> counters = new ConcurrentHashMap<>();
+    // the journal is applied by one transaction at a time, the same entries are never subtracted twice
+    private final ReentrantLock journalLock = new ReentrantLock();
+
+    public HotStockCounters(ProductRepository productRepository, StockJournalRepository stockJournalRepository,
+                            ApplicationEventPublisher eventPublisher, TransactionTemplate transactionTemplate,
+                            @Value("${hot-stock.stripes:16}") int numberOfStripes,
+                            @Value("${hot-stock.flush-batch-size:5000}") int flushBatchSize) {
+        this.productRepository = productRepository;
+        this.stockJournalRepository = stockJournalRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.numberOfStripes = numberOfStripes;
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    @PostConstruct
+    public void recover() {
+        transactionTemplate.executeWithoutResult(status -> {
+            lockJournal();
+            applyWholeJournal();
+            for (Object[] row : productRepository.findHotStockQuantities()) {
+                HotStock hotStock = new HotStock(new StripedStockCounter(numberOfStripes, (Integer) row[1]));
+                hotStock.enabling.countDown();
+                counters.put((Long) row[0], hotStock);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${hot-stock.flush-interval-ms:1000}")
+    @Transactional
+    public void flush() {
+        lockJournal();
+        applyJournal();
+    }
+
+    // false when the product is not in hot stock mode, the stock is then taken from the product row
+    public boolean reserve(Long productId, int quantity) {
+        StripedStockCounter counter = enterCounter(productId);
+        if (counter == null) {
+            return false;
+        }
+        if (!counter.tryTake(quantity)) {
+            throw new IllegalStateException("Not enough quantity left for product id: " + productId);
+        }
+        stockJournalRepository.save(StockJournalEntry.builder().productId(productId).quantity(quantity).build());
+        // the journal entry disappears with the checkout, and so must the reservation
+        afterCompletion(committed -> {
+            if (!committed) counter.add(quantity);
+        });
+        return true;
+    }
+
+    // false when the product is not in hot stock mode
+    public boolean release(Long productId, int quantity) {
+        StripedStockCounter counter = enterCounter(productId);
+        if (counter == null) {
+            return false;
+        }
+        stockJournalRepository.save(StockJournalEntry.builder().productId(productId).quantity(-quantity).build());
+        // given back only once it can't be rolled back anymore
+        afterCompletion(committed -> {
+            if (committed) counter.add(quantity);
+        });
+        return true;
+    }
+
+    @Transactional
+    public void enable(Long productId) {
+        lockJournal();
+        // the journal of a previous sale must be applied before the quantity is read
+        applyWholeJournal();
+        if (lockMode(productId)) {
+            throw new IllegalStateException("Hot stock mode is already enabled for this product");
+        }
+        int quantity = productRepository.findQuantityByIdForUpdate(productId)
+                .orElseThrow(() -> new NotFoundException("Product not found for productId: " + productId));
+        productRepository.setHotStock(productId, true);
+        HotStock hotStock = new HotStock(new StripedStockCounter(numberOfStripes, quantity));
+        counters.put(productId, hotStock);
+        afterCompletion(committed -> {
+            if (!committed) counters.remove(productId, hotStock);
+            hotStock.enabling.countDown();
+        });
+    }
+
+    @Transactional
+    public void disable(Long productId) {
+        lockJournal();
+        HotStock hotStock = counters.get(productId);
+        if (hotStock != null) {
+            // waits for the checkouts which took from the counter, their journal entries are then committed or rolled back.
+            // before the row lock, their inserts of order items wait for it to check the product
+            try {
+                if (!hotStock.inFlight.writeLock().tryLock(DISABLE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Too many checkouts of the product at the moment, please try again");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while disabling hot stock mode");
+            }
+            afterCompletion(committed -> {
+                if (!committed) counters.put(productId, hotStock);
+                hotStock.inFlight.writeLock().unlock();
+            });
+        }
+        // the checkouts which don't find the counter anymore wait for this lock before reading the quantity
+        if (!lockMode(productId)) {
+            throw new IllegalStateException("Hot stock mode is already disabled for this product");
+        }
+        counters.remove(productId);
+
+        // locking read, the entries committed since the start of the transaction are seen
+        List<StockJournalEntry> entries = stockJournalRepository.findAllByProductId(productId);
+        int quantity = entries.stream().mapToInt(StockJournalEntry::getQuantity).sum();
+        if (quantity != 0) {
+            productRepository.subtractStock(productId, quantity);
+        }
+        stockJournalRepository.deleteAllInBatch(entries);
+        productRepository.setHotStock(productId, false);
+    }
+
+    // the hot stock mode of the product, with its row locked until the end of the transaction
+    private boolean lockMode(Long productId) {
+        return productRepository.findHotStockByIdForUpdate(productId)
+                .orElseThrow(() -> new NotFoundException("Product not found for productId: " + productId));
+    }
+
+    // the counter of the product, null when it is not in hot stock mode.
+    // the checkout is then in flight until its transaction completes, and disable waits for it
+    private StripedStockCounter enterCounter(Long productId) {
+        HotStock hotStock = counters.get(productId);
+        if (hotStock == null) {
+            return null;
+        }
+        // being enabled, it is only used once committed
+        try {
+            if (!hotStock.enabling.await(ENABLE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Hot stock mode of the product is being enabled, please try again");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for hot stock mode");
+        }
+        hotStock.inFlight.readLock().lock();
+        // disabled while waiting for the lock, or its enabling rolled back
+        if (counters.get(productId) != hotStock) {
+            hotStock.inFlight.readLock().unlock();
+            return null;
+        }
+        afterCompletion(committed -> hotStock.inFlight.readLock().unlock());
+        return hotStock.counter;
+    }
+
+    private void lockJournal() {
+        journalLock.lock();
+        afterCompletion(committed -> journalLock.unlock());
+    }
+
+    private void applyWholeJournal() {
+        int applied;
+        do {
+            applied = applyJournal();
+        } while (applied == flushBatchSize);
+    }
+
+    // the number of entries applied
+    private int applyJournal() {
+        List<StockJournalEntry> entries = stockJournalRepository.findAllByOrderByIdAsc(PageRequest.of(0, flushBatchSize));
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Integer> quantities = new TreeMap<>();
+        entries.forEach(entry -> quantities.merge(entry.getProductId(), entry.getQuantity(), Integer::sum));
+        quantities.forEach(productRepository::subtractStock);
+        stockJournalRepository.deleteAllInBatch(entries);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofProducts(new ArrayList<>(quantities.keySet())));
+        return entries.size();
+    }
+
+    private void afterCompletion(Consumer<Boolean> callback) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    private static class HotStock {
+        private final StripedStockCounter counter;
+        private final ReentrantReadWriteLock inFlight = new ReentrantReadWriteLock();
+        // counted down once the transaction which enabled the mode completed
+        private final CountDownLatch enabling = new CountDownLatch(1);
+
+        private HotStock(StripedStockCounter counter) {
+            this.counter = counter;
+        }
+    }
+}
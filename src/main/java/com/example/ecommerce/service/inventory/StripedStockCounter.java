@@ -0,0 +1,74 @@
+package com.example.ecommerce.service.inventory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// the available quantity of a product split into stripes, so that concurrent checkouts
+// compare-and-set different memory locations instead of all contending on the same one
+public class StripedStockCounter {
+
+    // one stripe per cache line, 8 longs of 8 bytes
+    private static final int PADDING = 8;
+
+    private final int numberOfStripes;
+    private final AtomicLongArray stripes;
+
+    public StripedStockCounter(int numberOfStripes, long quantity) {
+        if (numberOfStripes <= 0) {
+            throw new IllegalArgumentException("The number of stripes must be positive");
+        }
+        this.numberOfStripes = numberOfStripes;
+        this.stripes = new AtomicLongArray(numberOfStripes * PADDING);
+        for (int i = 0; i < numberOfStripes; i++) {
+            long share = quantity / numberOfStripes + (i < quantity % numberOfStripes ? 1 : 0);
+            stripes.set(i * PADDING, share);
+        }
+    }
+
+    // false, and nothing taken, when there is not enough quantity left
+    public boolean tryTake(long quantity) {
+        int start = ThreadLocalRandom.current().nextInt(numberOfStripes);
+        // most of the time a single stripe has enough
+        for (int i = 0; i < numberOfStripes; i++) {
+            int index = ((start + i) % numberOfStripes) * PADDING;
+            long available;
+            while ((available = stripes.get(index)) >= quantity) {
+                if (stripes.compareAndSet(index, available, available - quantity)) {
+                    return true;
+                }
+            }
+        }
+
+        // otherwise the quantity is gathered from several stripes, and given back if there is not enough in total
+        long taken = 0;
+        for (int i = 0; i < numberOfStripes && taken < quantity; i++) {
+            int index = ((start + i) % numberOfStripes) * PADDING;
+            long available;
+            while ((available = stripes.get(index)) > 0) {
+                long part = Math.min(available, quantity - taken);
+                if (stripes.compareAndSet(index, available, available - part)) {
+                    taken += part;
+                    break;
+                }
+            }
+        }
+        if (taken == quantity) {
+            return true;
+        }
+        add(taken);
+        return false;
+    }
+
+    public void add(long quantity) {
+        stripes.addAndGet(ThreadLocalRandom.current().nextInt(numberOfStripes) * PADDING, quantity);
+    }
+
+    // not a snapshot, the stripes are read one by one
+    public long available() {
+        long available = 0;
+        for (int i = 0; i < numberOfStripes; i++) {
+            available += stripes.get(i * PADDING);
+        }
+        return available;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.ecommerce.service.promotion;
+
+import com.example.ecommerce.repository.MiniGamePlayingRecordRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// the customers who already saved a voucher of the mini game, one bit per customer id and per day
+// (days of the default time zone, see TimeZoneConfig). the ids are dense, a day of a million customers is 125 KB.
+// the bits are the answer of the daily check, the mini game playing records are only their log:
+// today's bits are rebuilt from the records at startup, before the server takes the first claim,
+// and the days before yesterday are dropped
+@Component
+public class DailyClaims {
+
+    private final MiniGamePlayingRecordRepository miniGamePlayingRecordRepository;
+
+    private final Map<LocalDate, BitSet> days = new ConcurrentHashMap<>();
+
+    public DailyClaims(MiniGamePlayingRecordRepository miniGamePlayingRecordRepository) {
+        this.miniGamePlayingRecordRepository = miniGamePlayingRecordRepository;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        LocalDate today = LocalDate.now();
+        BitSet bits = bitsOf(today);
+        for (Long customerId : miniGamePlayingRecordRepository.findCustomerIdsByCreatedAtBetween(
+                today.atStartOfDay(), today.plusDays(1).atStartOfDay())) {
+            synchronized (bits) {
+                bits.set(Math.toIntExact(customerId));
+            }
+        }
+    }
+
+    // yesterday is kept for the claims admitted just before midnight and still in a queue
+    @Scheduled(fixedDelayString = "${daily-claims.cleanup-interval-ms:3600000}")
+    public void dropOldDays() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        days.keySet().removeIf(day -> day.isBefore(yesterday));
+    }
+
+    // false when the customer has already claimed on that day
+    public boolean tryMark(LocalDate day, Long customerId) {
+        BitSet bits = bitsOf(day);
+        int index = Math.toIntExact(customerId);
+        synchronized (bits) {
+            if (bits.get(index)) {
+                return false;
+            }
+            bits.set(index);
+            return true;
+        }
+    }
+
+    // the claim didn't go through
+    public void unmark(LocalDate day, Long customerId) {
+        BitSet bits = bitsOf(day);
+        synchronized (bits) {
+            bits.clear(Math.toIntExact(customerId));
+        }
+    }
+
+    public boolean contains(LocalDate day, Long customerId) {
+        BitSet bits = days.get(day);
+        if (bits == null) {
+            return false;
+        }
+        synchronized (bits) {
+            return bits.get(Math.toIntExact(customerId));
+        }
+    }
+
+    private BitSet bitsOf(LocalDate day) {
+        return days.computeIfAbsent(day, loaded -> new BitSet());
+    }
+}
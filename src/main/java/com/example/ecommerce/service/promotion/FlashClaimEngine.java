@@ -0,0 +1,232 @@
+package com.example.ecommerce.service.promotion;
+
+import com.example.ecommerce.domain.Promotion;
+import com.example.ecommerce.domain.VoucherSet;
+import com.example.ecommerce.service.service.MiniGamePlayingRecordService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// the claims of the vouchers of the mini game, which all come at the same time when a set is opened.
+// the claims of a set wait in a bounded queue and are drained in batches, each batch is claimed in one transaction
+// which takes the row lock of the set once, instead of one transaction and one wait for the lock per claim.
+// a customer is admitted once per day (DailyClaims) and a set with nothing left rejects the claims without
+// touching the database, until vouchers are added to it.
+// the queues live in this instance, the engine assumes a single instance of the application
+@Component
+public class FlashClaimEngine {
+
+    private static final int PENDING = 0;
+    private static final int TAKEN = 1;
+    private static final int CANCELLED = 2;
+
+    private final PromotionSetCounters promotionSetCounters;
+    private final MiniGamePlayingRecordService miniGamePlayingRecordService;
+    private final DailyClaims dailyClaims;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final long timeoutMs;
+    private final ExecutorService drainers;
+
+    private final Map<Long, SetQueue> queues = new ConcurrentHashMap<>();
+
+    public FlashClaimEngine(PromotionSetCounters promotionSetCounters,
+                            MiniGamePlayingRecordService miniGamePlayingRecordService,
+                            DailyClaims dailyClaims,
+                            @Value("${flash-claim.queue-capacity:10000}") int queueCapacity,
+                            @Value("${flash-claim.batch-size:200}") int batchSize,
+                            @Value("${flash-claim.timeout-ms:5000}") long timeoutMs,
+                            @Value("${flash-claim.drain-threads:2}") int drainThreads) {
+        this.promotionSetCounters = promotionSetCounters;
+        this.miniGamePlayingRecordService = miniGamePlayingRecordService;
+        this.dailyClaims = dailyClaims;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.timeoutMs = timeoutMs;
+        this.drainers = Executors.newFixedThreadPool(drainThreads, runnable -> {
+            Thread thread = new Thread(runnable, "flash-claim");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        drainers.shutdown();
+    }
+
+    // waits for the batch of the claim, out of any transaction
+    public Promotion claim(VoucherSet voucherSet, Long customerId) {
+        SetQueue queue = queues.computeIfAbsent(voucherSet.getId(), id -> new SetQueue(voucherSet));
+        if (queue.exhausted) {
+            throw new IllegalStateException("No voucher available for this voucher set");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+        if (!dailyClaims.tryMark(today, customerId)) {
+            throw new IllegalArgumentException("You has already saved a voucher today");
+        }
+        ClaimRequest request = new ClaimRequest(customerId, now);
+        if (!queue.requests.offer(request)) {
+            dailyClaims.unmark(today, customerId);
+            throw new IllegalStateException("Too many claims at the moment, please try again");
+        }
+        startDraining(queue);
+
+        try {
+            return request.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // still in the queue, the drainer will skip it. once taken, the claim is kept
+            if (request.state.compareAndSet(PENDING, CANCELLED)) {
+                dailyClaims.unmark(today, customerId);
+                throw new IllegalStateException("Too many claims at the moment, please try again");
+            }
+            return awaitTakenClaim(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Claim interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // the batch of the claim is being saved, it is waited for at most one more timeout.
+    // past it the claim may still go through, the voucher is then in the vouchers of the customer
+    private Promotion awaitTakenClaim(ClaimRequest request) {
+        try {
+            return request.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Your voucher is still being saved, please check your vouchers later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Claim interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // the set got more vouchers, the claims are let through again once they are committed
+    public void forget(Long voucherSetId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reopen(voucherSetId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reopen(voucherSetId);
+            }
+        });
+    }
+
+    private void reopen(Long voucherSetId) {
+        SetQueue queue = queues.get(voucherSetId);
+        if (queue != null) {
+            queue.exhausted = false;
+        }
+    }
+
+    private void startDraining(SetQueue queue) {
+        if (queue.draining.compareAndSet(false, true)) {
+            drainers.execute(() -> drain(queue));
+        }
+    }
+
+    // one batch at a time: a set with a long queue is put back behind the other sets after each batch,
+    // instead of keeping the thread until its queue is empty
+    private void drain(SetQueue queue) {
+        try {
+            List<ClaimRequest> drained = new ArrayList<>(batchSize);
+            queue.requests.drainTo(drained, batchSize);
+            List<ClaimRequest> batch = drained.stream()
+                    .filter(request -> request.state.compareAndSet(PENDING, TAKEN))
+                    .toList();
+            if (!batch.isEmpty()) {
+                claimBatch(queue, batch);
+            }
+        } finally {
+            if (!queue.requests.isEmpty()) {
+                drainers.execute(() -> drain(queue));
+            } else {
+                queue.draining.set(false);
+                // a claim offered after the check and before the flag was cleared
+                if (!queue.requests.isEmpty() && queue.draining.compareAndSet(false, true)) {
+                    drainers.execute(() -> drain(queue));
+                }
+            }
+        }
+    }
+
+    private void claimBatch(SetQueue queue, List<ClaimRequest> batch) {
+        if (queue.exhausted) {
+            batch.forEach(request -> reject(request, new IllegalStateException("No voucher available for this voucher set")));
+            return;
+        }
+        List<Long> customerIds = batch.stream().map(request -> request.customerId).toList();
+        List<Promotion> claimed;
+        try {
+            claimed = promotionSetCounters.claimBatch(queue.voucherSet, customerIds);
+        } catch (RuntimeException e) {
+            // the transaction of the batch is rolled back, none of its claims went through
+            batch.forEach(request -> reject(request, new IllegalStateException("Failed to save the voucher, please try again")));
+            return;
+        }
+
+        miniGamePlayingRecordService.saveMiniGamePlayingRecords(batch.subList(0, claimed.size()).stream()
+                .map(request -> new MiniGamePlayingRecordService.Admission(request.customerId, request.admittedAt))
+                .toList());
+        for (int i = 0; i < claimed.size(); i++) {
+            batch.get(i).result.complete(claimed.get(i));
+        }
+        if (claimed.size() < batch.size()) {
+            queue.exhausted = true;
+            batch.subList(claimed.size(), batch.size())
+                    .forEach(request -> reject(request, new IllegalStateException("No voucher available for this voucher set")));
+        }
+    }
+
+    private void reject(ClaimRequest request, RuntimeException reason) {
+        dailyClaims.unmark(request.admittedAt.toLocalDate(), request.customerId);
+        request.result.completeExceptionally(reason);
+    }
+
+    private class SetQueue {
+        private final VoucherSet voucherSet;
+        private final BlockingQueue<ClaimRequest> requests = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean exhausted;
+
+        private SetQueue(VoucherSet voucherSet) {
+            this.voucherSet = voucherSet;
+        }
+    }
+
+    private static class ClaimRequest {
+        private final Long customerId;
+        private final LocalDateTime admittedAt;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private final CompletableFuture<Promotion> result = new CompletableFuture<>();
+
+        private ClaimRequest(Long customerId, LocalDateTime admittedAt) {
+            this.customerId = customerId;
+            this.admittedAt = admittedAt;
+        }
+    }
+}
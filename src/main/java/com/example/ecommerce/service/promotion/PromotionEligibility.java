@@ -0,0 +1,37 @@
+package com.example.ecommerce.service.promotion;
+
+import com.example.ecommerce.domain.CartPricing;
+import com.example.ecommerce.domain.Coupon;
+import com.example.ecommerce.domain.Promotion;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// the promotions of a customer split by whether they can be applied to a cart, in one pass over them.
+// the stores of the cart are the set of its pricing, built once with it, and the checks return booleans
+// instead of throwing, see PromotionService.checkIfPromotionAndThrowExceptionIfUsable for the messages
+public record PromotionEligibility(List<Promotion> usable, List<Promotion> unusable) {
+
+    public static PromotionEligibility evaluate(Collection<? extends Promotion> promotions, CartPricing pricing, LocalDateTime now) {
+        List<Promotion> usable = new ArrayList<>();
+        List<Promotion> unusable = new ArrayList<>();
+        for (Promotion promotion : promotions) {
+            (isUsable(promotion, pricing, now) ? usable : unusable).add(promotion);
+        }
+        return new PromotionEligibility(usable, unusable);
+    }
+
+    public static boolean isUsable(Promotion promotion, CartPricing pricing, LocalDateTime now) {
+        if (promotion.isUsed() || promotion.getStartAt().isAfter(now) || promotion.getExpiredAt().isBefore(now)) {
+            return false;
+        }
+        // a voucher is usable for every product, a coupon only for the products of its store
+        return !(promotion instanceof Coupon coupon) || pricing.containsStore(coupon.getStore().getId());
+    }
+
+    public boolean allUsable() {
+        return unusable.isEmpty();
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.ecommerce.service.promotion;
+
+import com.example.ecommerce.domain.Customer;
+import com.example.ecommerce.domain.Promotion;
+import com.example.ecommerce.domain.PromotionSet;
+import com.example.ecommerce.domain.VoucherSet;
+import com.example.ecommerce.exception.NotFoundException;
+import com.example.ecommerce.repository.CustomerRepository;
+import com.example.ecommerce.repository.PromotionRepository;
+import com.example.ecommerce.repository.PromotionSetRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+// the issued / claimed / used counters of the promotion sets, changed with atomic updates,
+// so that the availability of a set and a claim don't depend on the number of promotions in it.
+// a set is only a capacity (issued), its vouchers or coupons are minted when they are claimed.
+// the sets created before that still have free rows, which are claimed first
+@Component
+@AllArgsConstructor
+public class PromotionSetCounters {
+
+    private final PromotionSetRepository promotionSetRepository;
+    private final PromotionRepository promotionRepository;
+    private final CustomerRepository customerRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // the sets created before the counters, counted once from their promotions, before the server takes the first claim
+    @PostConstruct
+    public void countUncountedSets() {
+        transactionTemplate.executeWithoutResult(status -> {
+            promotionSetRepository.countUncountedVoucherSets();
+            promotionSetRepository.countUncountedCouponSets();
+        });
+    }
+
+    // mints a promotion of the set for the customer, or gives one created in advance no customer has yet
+    @Transactional
+    public Promotion claim(PromotionSet promotionSet, Customer customer) {
+        List<Promotion> claimed = claimBatch(promotionSet, List.of(customer.getId()));
+        if (claimed.isEmpty()) {
+            String type = promotionSet instanceof VoucherSet ? "voucher" : "coupon";
+            throw new IllegalStateException("No " + type + " available for this " + type + " set");
+        }
+        return claimed.get(0);
+    }
+
+    // one promotion of the set for each of the customers, in their order, as long as the set has some left.
+    // the claims of a whole batch take the row lock of the set once
+    @Transactional
+    public List<Promotion> claimBatch(PromotionSet promotionSet, List<Long> customerIds) {
+        Long promotionSetId = promotionSet.getId();
+        // the counter row is locked until the end of the claim, the set can't be over-claimed
+        long available = lockAvailable(promotionSetId);
+        int count = (int) Math.min(available, customerIds.size());
+        if (count <= 0) {
+            return List.of();
+        }
+        promotionSetRepository.addClaimed(promotionSetId, count);
+
+        List<Long> freePromotionIds = promotionSet instanceof VoucherSet
+                ? promotionRepository.findFreeVoucherIdsForUpdate(promotionSetId, count)
+                : promotionRepository.findFreeCouponIdsForUpdate(promotionSetId, count);
+        List<Promotion> promotions = new ArrayList<>(promotionRepository.findAllById(freePromotionIds));
+        while (promotions.size() < count) {
+            promotions.add(promotionSet.mint());
+        }
+        for (int i = 0; i < count; i++) {
+            promotions.get(i).setCustomer(customerRepository.getReferenceById(customerIds.get(i)));
+        }
+        return promotionRepository.saveAll(promotions);
+    }
+
+    // throws for a set not counted yet rather than taking it for an empty one
+    private long lockAvailable(Long promotionSetId) {
+        long available = promotionSetRepository.findAvailableForUpdate(promotionSetId)
+                .orElseThrow(() -> new NotFoundException("Promotion set not found"));
+        if (available < 0) {
+            throw new IllegalStateException("The promotion set is not counted yet, please try again");
+        }
+        return available;
+    }
+
+    @Transactional
+    public void issued(Long promotionSetId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0");
+        }
+        promotionSetRepository.addIssued(promotionSetId, quantity);
+    }
+
+    // only the promotions not claimed yet can be taken back, up to quantity of them.
+    // the free rows of the old sets go with them, there are never more of them than promotions left to claim
+    @Transactional
+    public void withdrawn(PromotionSet promotionSet, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0");
+        }
+        Long promotionSetId = promotionSet.getId();
+        // locked like for a claim, no claim takes the free rows being deleted
+        long available = lockAvailable(promotionSetId);
+        int count = (int) Math.min(available, quantity);
+        if (count <= 0) {
+            return;
+        }
+        promotionSetRepository.addIssued(promotionSetId, -count);
+        if (promotionSet instanceof VoucherSet) {
+            promotionRepository.deleteFreeVouchers(promotionSetId, count);
+        } else {
+            promotionRepository.deleteFreeCoupons(promotionSetId, count);
+        }
+    }
+
+    // in the transaction of the checkout which used them, one update per set
+    @Transactional
+    public void used(Collection<? extends Promotion> promotions) {
+        Map<Long, Integer> bySet = new TreeMap<>();
+        promotions.forEach(promotion -> bySet.merge(promotion.getPromotionSetId(), 1, Integer::sum));
+        bySet.forEach(promotionSetRepository::addUsed);
+    }
+
+    @Transactional
+    public void deleted(Promotion promotion) {
+        Long promotionSetId = promotion.getPromotionSetId();
+        promotionSetRepository.addIssued(promotionSetId, -1);
+        if (promotion.getCustomer() != null) {
+            promotionSetRepository.addClaimed(promotionSetId, -1);
+        }
+        if (promotion.isUsed()) {
+            promotionSetRepository.addUsed(promotionSetId, -1);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.ecommerce.service.search;
+
+import com.example.ecommerce.dto.response.Suggestion;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static com.example.ecommerce.utils.Utils.foldAccents;
+import static com.example.ecommerce.utils.Utils.tokenize;
+
+// immutable prefix index over suggestions, so it can be read by many threads without locking
+// and replaced as a whole when it is rebuilt.
+// the keys are kept in one sorted array: the keys starting with a prefix are a contiguous range of it.
+// for the short prefixes matching too many keys to be scanned, the best suggestions are computed when building.
+public class PrefixIndex {
+
+    private static final int MAX_KEY_LENGTH = 64;
+    private static final int SCAN_LIMIT = 1024;
+
+    private final Suggestion[] suggestions; // sorted by score, the best first
+    private final String[] keys; // sorted
+    private final int[] suggestionOfKey; // index in suggestions of the suggestion of each key
+    private final int limit;
+    private final Map<String, int[]> bestByPrefix = new HashMap<>();
+
+    private PrefixIndex(Suggestion[] suggestions, String[] keys, int[] suggestionOfKey, int limit) {
+        this.suggestions = suggestions;
+        this.keys = keys;
+        this.suggestionOfKey = suggestionOfKey;
+        this.limit = limit;
+        precomputeBest("", 0, keys.length);
+    }
+
+    // every suggestion can be found from the start of any of its words, e.g. "galaxy" finds "Samsung Galaxy S23"
+    public static PrefixIndex build(Collection<Suggestion> candidates, int limit) {
+        // the same text is only suggested once, with the best score
+        Map<String, Suggestion> byText = new HashMap<>();
+        for (Suggestion suggestion : candidates) {
+            if (suggestion.getText() == null || suggestion.getText().isBlank()) continue;
+            byText.merge(String.join(" ", tokenize(suggestion.getText())), suggestion,
+                    (a, b) -> a.getScore() >= b.getScore() ? a : b);
+        }
+        Suggestion[] suggestions = byText.values().stream()
+                .sorted(Comparator.comparingLong(Suggestion::getScore).reversed().thenComparing(Suggestion::getText))
+                .toArray(Suggestion[]::new);
+
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+        for (int i = 0; i < suggestions.length; i++) {
+            List<String> words = tokenize(suggestions[i].getText());
+            for (int start = 0; start < words.size(); start++) {
+                String key = String.join(" ", words.subList(start, words.size()));
+                entries.add(Map.entry(key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key, i));
+            }
+        }
+        entries.sort(Map.Entry.comparingByKey());
+
+        String[] keys = new String[entries.size()];
+        int[] suggestionOfKey = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            keys[i] = entries.get(i).getKey();
+            suggestionOfKey[i] = entries.get(i).getValue();
+        }
+        return new PrefixIndex(suggestions, keys, suggestionOfKey, limit);
+    }
+
+    public List<Suggestion> suggest(String prefix) {
+        String normalizedPrefix = String.join(" ", tokenize(prefix));
+        if (normalizedPrefix.isEmpty()) return List.of();
+
+        int[] best;
+        if (foldAccents(prefix).matches(".*[^a-z0-9]$")) {
+            // the last word is complete: "iphone " suggests "iphone" and "iphone 15" but not "iphonex"
+            int from = lowerBound(normalizedPrefix);
+            int to = lowerBound(normalizedPrefix + "!"); // '!' comes right after ' ' in the character table
+            int[] exact = bestSuggestions(from, lowerBound(normalizedPrefix + " "));
+            int[] longer = bestInRange(normalizedPrefix + " ", lowerBound(normalizedPrefix + " "), to);
+            best = IntStream.concat(Arrays.stream(exact), Arrays.stream(longer))
+                    .distinct().sorted().limit(limit).toArray();
+        } else {
+            best = bestInRange(normalizedPrefix, lowerBound(normalizedPrefix), lowerBound(normalizedPrefix + Character.MAX_VALUE));
+        }
+
+        List<Suggestion> result = new ArrayList<>(best.length);
+        for (int index : best) {
+            result.add(suggestions[index]);
+        }
+        return result;
+    }
+
+    private int[] bestInRange(String prefix, int from, int to) {
+        int[] best = bestByPrefix.get(prefix);
+        return best != null ? best : bestSuggestions(from, to);
+    }
+
+    public int size() {
+        return suggestions.length;
+    }
+
+    private void precomputeBest(String prefix, int from, int to) {
+        if (to - from <= SCAN_LIMIT) return; // small enough to be scanned at query time
+
+        bestByPrefix.put(prefix, bestSuggestions(from, to));
+
+        // split the range by the next character of the keys
+        int depth = prefix.length();
+        int start = from;
+        while (start < to && keys[start].length() == depth) start++; // the key equal to the prefix has no next character
+        while (start < to) {
+            char next = keys[start].charAt(depth);
+            int end = start;
+            while (end < to && keys[end].charAt(depth) == next) end++;
+            precomputeBest(prefix + next, start, end);
+            start = end;
+        }
+    }
+
+    // the suggestions are sorted by score, so the best ones are the smallest distinct indexes
+    private int[] bestSuggestions(int from, int to) {
+        TreeSet<Integer> best = new TreeSet<>();
+        for (int i = from; i < to; i++) {
+            int index = suggestionOfKey[i];
+            if (best.size() < limit) {
+                best.add(index);
+            } else if (index < best.last() && best.add(index)) {
+                best.pollLast();
+            }
+        }
+        return best.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // index of the first key not smaller than the given key (the keys may contain duplicates)
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle].compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.ecommerce.service.search;
+
+import com.example.ecommerce.domain.Category;
+import com.example.ecommerce.domain.Product;
+import com.example.ecommerce.domain.ProductOnSaleInformation;
+import com.example.ecommerce.dto.request.product.ProductFilterRequest;
+import com.example.ecommerce.dto.response.ProductFacets;
+import com.example.ecommerce.repository.ProductRepository;
+import com.example.ecommerce.repository.StoreRepository;
+import com.example.ecommerce.service.cache.CatalogChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// in-memory columnar snapshot of the product fields used by the filters of the product listing,
+// so that the counts of every facet are computed in a single pass over the arrays instead of one GROUP BY query per facet.
+// it is built at startup and then refreshed product by product from the CatalogChangedEvents
+@Component
+public class ProductFacetIndex {
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final Category[] CATEGORIES = Category.values();
+    private static final int MAX_RATING = 5;
+
+    private final ProductRepository productRepository;
+    private final StoreRepository storeRepository;
+    private final double[] priceBounds; // the limits between the price ranges, ascending
+
+    private Columns columns = new Columns();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public ProductFacetIndex(ProductRepository productRepository, StoreRepository storeRepository,
+                             @Value("${facet.price-bounds:100000,500000,1000000,5000000}") double[] priceBounds) {
+        this.productRepository = productRepository;
+        this.storeRepository = storeRepository;
+        this.priceBounds = priceBounds.clone();
+        Arrays.sort(this.priceBounds);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        // built aside, the facets are still computed from the previous snapshot in the meantime
+        Columns rebuilt = new Columns();
+        Page<Product> page;
+        int pageNumber = 0;
+        do {
+            page = productRepository.findAll(PageRequest.of(pageNumber++, REBUILD_BATCH_SIZE));
+            page.getContent().forEach(rebuilt::put);
+        } while (page.hasNext());
+
+        lock.writeLock().lock();
+        try {
+            columns = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // in a new transaction, the one of the change is already committed
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        List<Product> products = event.productIds().isEmpty() ? List.of() : productRepository.findAllById(event.productIds());
+        Map<Long, String> storeNames = new HashMap<>();
+        storeRepository.findAllById(event.storeIds()).forEach(store -> storeNames.put(store.getId(), store.getName()));
+
+        lock.writeLock().lock();
+        try {
+            event.productIds().forEach(columns::remove);
+            products.forEach(columns::put);
+            columns.storeNames.putAll(storeNames);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Product product) {
+        lock.writeLock().lock();
+        try {
+            columns.remove(product.getId());
+            columns.put(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // a product failing only the filter of one facet is still counted in this facet,
+    // so that the other values of the facet show how many products selecting them would give
+    public ProductFacets facets(ProductFilterRequest filter) {
+        boolean[] categoryFilter = null;
+        if (filter.getCategories() != null && !filter.getCategories().isEmpty()) {
+            categoryFilter = new boolean[CATEGORIES.length];
+            for (Category category : filter.getCategories()) categoryFilter[category.ordinal()] = true;
+        }
+        Long storeFilter = filter.getStoreId() == null || filter.getStoreId() == 0 ? null : filter.getStoreId();
+        double minPrice = filter.getMinPrice() == null ? Double.NEGATIVE_INFINITY : filter.getMinPrice();
+        double maxPrice = filter.getMaxPrice() == null ? Double.POSITIVE_INFINITY : filter.getMaxPrice();
+        double minRating = filter.getMinRating() == null ? Double.NEGATIVE_INFINITY : filter.getMinRating();
+        long now = System.currentTimeMillis();
+
+        long total = 0;
+        long[] categoryCounts = new long[CATEGORIES.length];
+        Map<Long, Long> storeCounts = new HashMap<>();
+        long[] priceCounts = new long[priceBounds.length + 1];
+        long[] ratingCounts = new long[MAX_RATING + 1]; // by the integer part of the rating
+
+        lock.readLock().lock();
+        try {
+            Columns c = columns;
+            for (int slot = 0; slot < c.size; slot++) {
+                if (!c.live[slot]) continue;
+                if (filter.getInStock() != null && filter.getInStock() != c.inStock[slot]) continue;
+                if (filter.getOnSale() != null && filter.getOnSale() != (c.saleEnd[slot] > now)) continue;
+
+                boolean categoryMatches = categoryFilter == null || (c.category[slot] >= 0 && categoryFilter[c.category[slot]]);
+                boolean storeMatches = storeFilter == null || storeFilter == c.storeId[slot];
+                boolean priceMatches = c.price[slot] >= minPrice && c.price[slot] <= maxPrice;
+                boolean ratingMatches = c.rating[slot] >= minRating;
+                int failures = (categoryMatches ? 0 : 1) + (storeMatches ? 0 : 1) + (priceMatches ? 0 : 1) + (ratingMatches ? 0 : 1);
+                if (failures > 1) continue;
+
+                if (failures == 0) total++;
+                if (c.category[slot] >= 0 && (failures == 0 || !categoryMatches)) categoryCounts[c.category[slot]]++;
+                if (c.storeId[slot] != 0 && (failures == 0 || !storeMatches)) storeCounts.merge(c.storeId[slot], 1L, Long::sum);
+                if (!Double.isNaN(c.price[slot]) && (failures == 0 || !priceMatches)) priceCounts[priceRange(c.price[slot])]++;
+                if (failures == 0 || !ratingMatches) ratingCounts[(int) Math.min(MAX_RATING, Math.max(0, c.rating[slot]))]++;
+            }
+            return toFacets(total, categoryCounts, storeCounts, priceCounts, ratingCounts, c.storeNames);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int priceRange(double price) {
+        int range = Arrays.binarySearch(priceBounds, price);
+        return range >= 0 ? range + 1 : -range - 1;
+    }
+
+    private ProductFacets toFacets(long total, long[] categoryCounts, Map<Long, Long> storeCounts, long[] priceCounts,
+                                   long[] ratingCounts, Map<Long, String> storeNames) {
+        Map<Category, Long> categories = new EnumMap<>(Category.class);
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            if (categoryCounts[i] > 0) categories.put(CATEGORIES[i], categoryCounts[i]);
+        }
+
+        List<ProductFacets.StoreCount> stores = new ArrayList<>();
+        storeCounts.forEach((storeId, count) -> stores.add(new ProductFacets.StoreCount(storeId, storeNames.get(storeId), count)));
+        stores.sort(Comparator.comparingLong(ProductFacets.StoreCount::getCount).reversed());
+
+        List<ProductFacets.PriceRangeCount> prices = new ArrayList<>();
+        for (int i = 0; i < priceCounts.length; i++) {
+            prices.add(new ProductFacets.PriceRangeCount(i == 0 ? 0.0 : priceBounds[i - 1], i == priceBounds.length ? null : priceBounds[i], priceCounts[i]));
+        }
+
+        // "4 stars and up", "3 stars and up"...
+        List<ProductFacets.RatingCount> ratings = new ArrayList<>();
+        long andUp = ratingCounts[MAX_RATING];
+        for (int rating = MAX_RATING - 1; rating >= 1; rating--) {
+            andUp += ratingCounts[rating];
+            ratings.add(new ProductFacets.RatingCount(rating, andUp));
+        }
+
+        return new ProductFacets(total, categories, stores, prices, ratings);
+    }
+
+    // one slot per product, a removed product leaves a free slot for the next one
+    private static class Columns {
+        private final Map<Long, Integer> slotByProductId = new HashMap<>();
+        private final Deque<Integer> freeSlots = new ArrayDeque<>();
+        private final Map<Long, String> storeNames = new HashMap<>();
+        private int size;
+
+        private boolean[] live = new boolean[1024];
+        private byte[] category = new byte[1024]; // the ordinal, -1 for none
+        private long[] storeId = new long[1024]; // 0 for none
+        private double[] price = new double[1024]; // NaN for none
+        private double[] rating = new double[1024];
+        private boolean[] inStock = new boolean[1024];
+        private long[] saleEnd = new long[1024]; // epoch millis, 0 when not on sale
+
+        private void put(Product product) {
+            int slot = freeSlots.isEmpty() ? size++ : freeSlots.pop();
+            if (slot >= live.length) grow();
+
+            slotByProductId.put(product.getId(), slot);
+            live[slot] = true;
+            category[slot] = product.getCategory() == null ? -1 : (byte) product.getCategory().ordinal();
+            storeId[slot] = product.getStore() == null ? 0 : product.getStore().getId();
+            price[slot] = product.getPrice() == null ? Double.NaN : product.getPrice();
+            rating[slot] = product.getAverageRating();
+            inStock[slot] = product.getQuantity() != null && product.getQuantity() > 0;
+            saleEnd[slot] = saleEnd(product.getOnSaleInformation());
+            if (product.getStore() != null) storeNames.put(product.getStore().getId(), product.getStore().getName());
+        }
+
+        private void remove(Long productId) {
+            Integer slot = slotByProductId.remove(productId);
+            if (slot == null) return;
+            live[slot] = false;
+            freeSlots.push(slot);
+        }
+
+        private long saleEnd(ProductOnSaleInformation sale) {
+            if (sale == null || !sale.isOnSale()) return 0;
+            if (sale.getExpirationDate() == null) return Long.MAX_VALUE;
+            return sale.getExpirationDate().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+
+        private void grow() {
+            int capacity = live.length * 2;
+            live = Arrays.copyOf(live, capacity);
+            category = Arrays.copyOf(category, capacity);
+            storeId = Arrays.copyOf(storeId, capacity);
+            price = Arrays.copyOf(price, capacity);
+            rating = Arrays.copyOf(rating, capacity);
+            inStock = Arrays.copyOf(inStock, capacity);
+            saleEnd = Arrays.copyOf(saleEnd, capacity);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.ecommerce.service.search;
+
+import com.example.ecommerce.domain.Product;
+import com.example.ecommerce.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.example.ecommerce.utils.Utils.tokenize;
+
+// in-memory inverted index over the name, description and category of the products,
+// used by ProductService.searchProduct instead of a "LIKE '%keyword%'" scan of the product table
+@Component
+public class ProductSearchIndex {
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float CATEGORY_WEIGHT = 2.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final float TERM_FREQUENCY_SATURATION = 1.2f; // same role as k1 in BM25
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final boolean enabled;
+
+    // term -> (product id -> weighted term frequency), sorted so the last keyword of a query can be matched as a prefix
+    private final NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    // product id -> the terms of the product, needed to remove the product from the postings
+    private final Map<Long, Set<String>> termsByProduct = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public ProductSearchIndex(ProductRepository productRepository,
+                              @Value("${search.product-index.enabled:false}") boolean enabled) {
+        this.productRepository = productRepository;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) return;
+
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            termsByProduct.clear();
+            Page<Product> page;
+            int pageNumber = 0;
+            do {
+                page = productRepository.findAll(PageRequest.of(pageNumber++, REBUILD_BATCH_SIZE));
+                page.getContent().forEach(this::addToIndex);
+            } while (page.hasNext());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Product product) {
+        if (!enabled || product.getId() == null) return;
+
+        lock.writeLock().lock();
+        try {
+            removeFromIndex(product.getId());
+            addToIndex(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        if (!enabled) return;
+
+        lock.writeLock().lock();
+        try {
+            removeFromIndex(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // returns the ids of the products matching every keyword, the most relevant first
+    public List<Long> search(String keyword) {
+        List<String> queryTerms = tokenize(keyword);
+        if (queryTerms.isEmpty()) return List.of();
+
+        lock.readLock().lock();
+        try {
+            int numberOfProducts = Math.max(termsByProduct.size(), 1);
+            Map<Long, Float> scores = null;
+
+            for (int i = 0; i < queryTerms.size(); i++) {
+                boolean isLastTerm = i == queryTerms.size() - 1;
+                // the user may still be typing the last keyword, so it is matched as a prefix
+                Map<Long, Float> termScores = isLastTerm
+                        ? scorePrefix(queryTerms.get(i), numberOfProducts)
+                        : scoreTerm(postings.get(queryTerms.get(i)), numberOfProducts);
+
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    // a product has to match every keyword
+                    Map<Long, Float> intersection = new HashMap<>();
+                    for (Map.Entry<Long, Float> entry : scores.entrySet()) {
+                        Float termScore = termScores.get(entry.getKey());
+                        if (termScore != null) {
+                            intersection.put(entry.getKey(), entry.getValue() + termScore);
+                        }
+                    }
+                    scores = intersection;
+                }
+                if (scores.isEmpty()) return List.of();
+            }
+
+            List<Map.Entry<Long, Float>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<Long, Float>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+            return ranked.stream().map(Map.Entry::getKey).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Float> scorePrefix(String prefix, int numberOfProducts) {
+        Map<Long, Float> scores = new HashMap<>();
+        for (Map.Entry<String, Map<Long, Float>> entry : postings.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) break;
+            scoreTerm(entry.getValue(), numberOfProducts)
+                    .forEach((productId, score) -> scores.merge(productId, score, Math::max));
+        }
+        return scores;
+    }
+
+    private Map<Long, Float> scoreTerm(Map<Long, Float> termPostings, int numberOfProducts) {
+        if (termPostings == null) return Map.of();
+
+        double idf = Math.log(1 + (numberOfProducts - termPostings.size() + 0.5) / (termPostings.size() + 0.5));
+        Map<Long, Float> scores = new HashMap<>(termPostings.size() * 2);
+        termPostings.forEach((productId, frequency) ->
+                scores.put(productId, (float) (idf * frequency * (TERM_FREQUENCY_SATURATION + 1) / (frequency + TERM_FREQUENCY_SATURATION))));
+        return scores;
+    }
+
+    private void addToIndex(Product product) {
+        Map<String, Float> frequencies = new HashMap<>();
+        tokenize(product.getName()).forEach(term -> frequencies.merge(term, NAME_WEIGHT, Float::sum));
+        if (product.getCategory() != null) {
+            tokenize(product.getCategory().name()).forEach(term -> frequencies.merge(term, CATEGORY_WEIGHT, Float::sum));
+        }
+        tokenize(product.getDescription()).forEach(term -> frequencies.merge(term, DESCRIPTION_WEIGHT, Float::sum));
+
+        frequencies.forEach((term, frequency) ->
+                postings.computeIfAbsent(term, t -> new HashMap<>()).put(product.getId(), frequency));
+        termsByProduct.put(product.getId(), frequencies.keySet());
+    }
+
+    private void removeFromIndex(Long productId) {
+        Set<String> terms = termsByProduct.remove(productId);
+        if (terms == null) return;
+
+        for (String term : terms) {
+            Map<Long, Float> termPostings = postings.get(term);
+            if (termPostings == null) continue;
+            termPostings.remove(productId);
+            if (termPostings.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+}
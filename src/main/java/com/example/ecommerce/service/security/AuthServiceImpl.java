@@ -70,7 +70,7 @@ public class AuthServiceImpl implements AuthService {
             store.setRole(registrationRequest.getRole());
             store.setAvatar(generateAvatarLink(store.getName()));
             store.setCreatedAt(LocalDateTime.now());
-            storeService.save(store);
+            storeService.create(store);
         } else {
             throw new RegistrationException("Invalid role!");
         }
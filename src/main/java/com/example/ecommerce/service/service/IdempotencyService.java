@@ -0,0 +1,11 @@
+package com.example.ecommerce.service.service;
+
+import com.example.ecommerce.dto.response.Response;
+import org.springframework.http.ResponseEntity;
+
+import java.util.function.Supplier;
+
+public interface IdempotencyService {
+    ResponseEntity<Response> execute(String operation, Long userId, String idempotencyKey, Object request,
+                                     Supplier<ResponseEntity<Response>> action);
+}
@@ -0,0 +1,11 @@
+package com.example.ecommerce.service.service;
+
+import com.example.ecommerce.domain.OrderItem;
+
+import java.util.Collection;
+
+public interface InventoryService {
+    void reserve(Collection<OrderItem> items);
+
+    void release(Collection<OrderItem> items);
+}
@@ -0,0 +1,16 @@
+package com.example.ecommerce.service.service;
+
+import com.example.ecommerce.domain.Money;
+import com.example.ecommerce.domain.Transaction;
+
+public interface LedgerService {
+    // applied to the balance right away
+    Transaction credit(Long userId, Money amount, String description, String idempotencyKey);
+
+    // applied to the balance by the next applyPendingCredits
+    Transaction creditLater(Long userId, Money amount, String description, String idempotencyKey);
+
+    Transaction debit(Long userId, Money amount, String description, String idempotencyKey);
+
+    void applyPendingCredits();
+}
@@ -1,10 +1,15 @@
 package com.example.ecommerce.service.service;
 
-import com.example.ecommerce.domain.Customer;
+import java.time.LocalDateTime;
+import java.util.List;
 
 public interface MiniGamePlayingRecordService {
+    // a claim admitted for the customer, at the time it was admitted (the day of its bit in DailyClaims)
+    record Admission(Long customerId, LocalDateTime admittedAt) {
+    }
+
     boolean checkIfCustomerSavedAVoucherToday(Long  customerId);
 
-    void saveMiniGamePlayingRecord(Customer id);
+    void saveMiniGamePlayingRecords(List<Admission> admissions);
 
 }
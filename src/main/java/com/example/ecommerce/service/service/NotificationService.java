@@ -11,6 +11,8 @@ import java.util.List;
 public interface NotificationService {
     void sendNotificationToUser(Long userId, Notification notification);
 
+    void sendNotifications(List<Notification> notifications);
+
     ResponseEntity<Response> getNotificationById(User user, Long id);
 
 
@@ -22,6 +24,9 @@ public interface NotificationService {
 
     ResponseEntity<Response> getAllNotificationsByUser(User user, Integer page, Integer elementsPerPage, String status, String filter, String sortBy);
 
+    // cursor pagination, the cursor is null or empty for the first page
+    ResponseEntity<Response> getAllNotificationsByUser(User user, String cursor, boolean countTotal, Integer elementsPerPage, String status, String filter, String sortBy);
+
     ResponseEntity<Response> markNotificationsAsRead(User user, MarkNotificationsAsRead request);
 
 }
\ No newline at end of file
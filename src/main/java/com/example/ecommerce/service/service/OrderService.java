@@ -23,6 +23,8 @@ public interface OrderService {
 
     void save(Order order);
 
+    void saveAll(List<Order> orders);
+
 
     Page<Order> getAll(Example<Order> example, Pageable pageable);
 
@@ -2,6 +2,7 @@ package com.example.ecommerce.service.service;
 
 import com.example.ecommerce.domain.Product;
 import com.example.ecommerce.domain.Store;
+import com.example.ecommerce.dto.request.product.ProductFilterRequest;
 import com.example.ecommerce.dto.request.product.UpdateProductRequest;
 import com.example.ecommerce.dto.response.Response;
 import org.springframework.data.domain.Page;
@@ -19,7 +20,13 @@ public interface ProductService {
 
     ResponseEntity<Response> getProductById(Long productId);
 
-    ResponseEntity<Response> getAllProducts(Integer pageNumber, Integer elementsPerPage, String category, Long storeId, String filter, String sortBy, String status);
+    // filter is the field to sort by, sortBy the direction
+    ResponseEntity<Response> getAllProducts(Integer pageNumber, Integer elementsPerPage, ProductFilterRequest filterRequest, String filter, String sortBy);
+
+    ResponseEntity<Response> getProductFacets(ProductFilterRequest filterRequest);
+
+    // cursor pagination, the cursor is null or empty for the first page
+    ResponseEntity<Response> getAllProducts(String cursor, boolean countTotal, Integer elementsPerPage, ProductFilterRequest filterRequest, String filter, String sortBy);
 
     Product findProductById(Long productId);
 
@@ -40,4 +47,6 @@ public interface ProductService {
 
     void saveAll(List<Product> products);
 
+    ResponseEntity<Response> rebuildRatingAggregates();
+
 }
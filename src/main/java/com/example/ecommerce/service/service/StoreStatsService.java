@@ -0,0 +1,26 @@
+package com.example.ecommerce.service.service;
+
+import com.example.ecommerce.domain.Order;
+import com.example.ecommerce.domain.Product;
+import com.example.ecommerce.dto.response.Response;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Collection;
+
+public interface StoreStatsService {
+    void createStats(Long storeId);
+
+    void onProductCreated(Long storeId);
+
+    void onProductDeleted(Product product);
+
+    void onProductRatingChanged(Long productId, double ratingDelta, int reviewCountDelta);
+
+    void onOrderStatusChanged(Long storeId, Order.OrderStatus oldStatus, Order.OrderStatus newStatus);
+
+    void onOrdersCreated(Collection<Long> storeIds);
+
+    void onProductsSold(Long storeId, long quantity);
+
+    ResponseEntity<Response> rebuildStats();
+}
@@ -0,0 +1,10 @@
+package com.example.ecommerce.service.service;
+
+import com.example.ecommerce.dto.response.Response;
+import org.springframework.http.ResponseEntity;
+
+public interface SuggestionService {
+    ResponseEntity<Response> suggest(String keyword);
+
+    void rebuild();
+}
@@ -1,7 +1,12 @@
 package com.example.ecommerce.utils;
 
 import java.security.SecureRandom;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Random;
+import java.util.regex.Pattern;
 
 public class Utils {
     private static final String HEX_CHARS = "0123456789ABCDEF";
@@ -10,6 +15,8 @@ public class Utils {
 
     private static final String CHARACTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
     private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
 
     public static String generateRandomString() {
         StringBuilder sb = new StringBuilder(CODE_LENGTH);
@@ -57,4 +64,23 @@ public class Utils {
         }
         return (nSum % 10 == 0);
     }
+
+    // lower-case and remove the accents, so that "Điện thoại" and "dien thoai" are the same text
+    public static String foldAccents(String text) {
+        if (text == null) return "";
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String withoutMarks = COMBINING_MARKS.matcher(decomposed).replaceAll("");
+        // "đ" is a letter on its own in Vietnamese, it has no decomposed form
+        return withoutMarks.replace('đ', 'd').replace('Đ', 'D').toLowerCase(Locale.ROOT);
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_ALPHANUMERIC.split(foldAccents(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
 }
@@ -0,0 +1,56 @@
+package com.example.ecommerce.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartPricingTests {
+
+	@Test
+	void groupsTheItemsByStoreWithExactSubtotals() {
+		Store first = store(1L);
+		Store second = store(2L);
+		OrderItem a = item(first, 0.1, 1);
+		OrderItem b = item(second, 19.99, 3);
+		OrderItem c = item(first, 0.2, 1);
+
+		CartPricing pricing = CartPricing.of(List.of(a, b, c));
+
+		assertEquals(2, pricing.stores().size());
+		assertEquals(1L, pricing.stores().get(0).store().getId());
+		assertEquals(List.of(a, c), pricing.stores().get(0).items());
+		assertEquals(Money.ofMinorUnits(30), pricing.stores().get(0).subtotal());
+		assertEquals(Money.ofMinorUnits(5997), pricing.stores().get(1).subtotal());
+		assertEquals(Money.ofMinorUnits(6027), pricing.total());
+		assertTrue(pricing.containsStore(2L));
+		assertFalse(pricing.containsStore(3L));
+	}
+
+	@Test
+	void cartKeepsItsPricingUntilItChanges() {
+		Store store = store(1L);
+		Cart cart = new Cart();
+		cart.setItems(new ArrayList<>(List.of(item(store, 10.0, 1))));
+
+		CartPricing pricing = cart.getPricing();
+		assertSame(pricing, cart.getPricing());
+
+		cart.addItem(Product.builder().id(7L).price(5.0).quantity(10).store(store).build(), 2);
+		assertNotSame(pricing, cart.getPricing());
+		assertEquals(Money.of(20.0), cart.getTotalPrice());
+	}
+
+	private Store store(Long id) {
+		Store store = new Store();
+		store.setId(id);
+		return store;
+	}
+
+	private OrderItem item(Store store, double price, int quantity) {
+		Product product = Product.builder().id((long) (price * 100)).price(price).quantity(10).store(store).build();
+		return OrderItem.builder().product(product).quantity(quantity).build();
+	}
+}
@@ -0,0 +1,35 @@
+package com.example.ecommerce.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MoneyTests {
+
+	@Test
+	void sumsOfDecimalAmountsAreExact() {
+		Money total = Money.ZERO;
+		for (int i = 0; i < 10; i++) {
+			total = total.plus(Money.of(0.1));
+		}
+		assertEquals(Money.of(1.0), total);
+		assertEquals(new BigDecimal("1.00"), total.toBigDecimal());
+		assertEquals(Money.of(0.3), Money.of(0.1).plus(Money.of(0.2)));
+	}
+
+	@Test
+	void percentOffIsRoundedHalfUp() {
+		assertEquals(Money.ofMinorUnits(67), Money.ofMinorUnits(133).percentOff(50));
+		assertEquals(Money.ofMinorUnits(9), Money.ofMinorUnits(10).percentOff(15));
+		assertEquals("12.5", Money.of(12.50).toString());
+	}
+
+	@Test
+	void roundTripsThroughTheDatabaseColumn() {
+		MoneyConverter converter = new MoneyConverter();
+		Money amount = Money.ofMinorUnits(123_456_789_012L);
+		assertEquals(amount, converter.convertToEntityAttribute(converter.convertToDatabaseColumn(amount)));
+	}
+}
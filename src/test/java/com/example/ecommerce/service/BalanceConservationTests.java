@@ -0,0 +1,111 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.domain.Money;
+import com.example.ecommerce.service.service.LedgerService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// many threads moving money between the same users through the ledger:
+// once the credits are applied, no change is lost and the total of the balances stays the same
+@SpringBootTest
+class BalanceConservationTests {
+
+	private static final int THREADS = 16;
+	private static final int TRANSFERS_PER_THREAD = 20;
+
+	@Autowired
+	private LedgerService ledgerService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void concurrentTransfersConserveTheBalances() throws InterruptedException {
+		List<Long> userIds = jdbcTemplate.queryForList("SELECT id FROM user ORDER BY id LIMIT 2", Long.class);
+		assumeTrue(userIds.size() == 2);
+		Long first = userIds.get(0);
+		Long second = userIds.get(1);
+		ledgerService.applyPendingCredits();
+		double firstBefore = balance(first);
+		double total = firstBefore + balance(second);
+
+		AtomicLong movedToSecond = new AtomicLong();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		for (int i = 0; i < THREADS; i++) {
+			boolean forward = i % 2 == 0;
+			executor.submit(() -> {
+				start.await();
+				for (int transfer = 0; transfer < TRANSFERS_PER_THREAD; transfer++) {
+					if (forward && transfer(first, second, 3)) {
+						movedToSecond.addAndGet(3);
+					} else if (!forward && transfer(second, first, 1)) {
+						movedToSecond.addAndGet(-1);
+					}
+				}
+				return null;
+			});
+		}
+		start.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+		ledgerService.applyPendingCredits();
+
+		assertEquals(firstBefore - movedToSecond.get(), balance(first), 1e-6);
+		assertEquals(total, balance(first) + balance(second), 1e-6);
+
+		// the balances are given back
+		if (movedToSecond.get() > 0) transfer(second, first, movedToSecond.get());
+		if (movedToSecond.get() < 0) transfer(first, second, -movedToSecond.get());
+		ledgerService.applyPendingCredits();
+	}
+
+	@Test
+	void aCreditCanBeSpentRightAway() {
+		List<Long> userIds = jdbcTemplate.queryForList("SELECT id FROM user ORDER BY id LIMIT 1", Long.class);
+		assumeTrue(userIds.size() == 1);
+		Long userId = userIds.get(0);
+		ledgerService.applyPendingCredits();
+		double before = balance(userId);
+
+		// e.g. a top-up followed by an online checkout, with no applyPendingCredits in between
+		ledgerService.credit(userId, Money.of(5), "test top-up", null);
+		assertEquals(before + 5, balance(userId), 1e-6);
+		ledgerService.debit(userId, Money.of(before + 5), "test checkout", null);
+		assertEquals(0, balance(userId), 1e-6);
+
+		// the balance is given back
+		ledgerService.credit(userId, Money.of(before + 5), "test refund", null);
+		ledgerService.debit(userId, Money.of(5), "test checkout", null);
+		assertEquals(before, balance(userId), 1e-6);
+	}
+
+	// false when the balance is not enough
+	private boolean transfer(Long fromId, Long toId, double amount) {
+		try {
+			ledgerService.debit(fromId, Money.of(amount), "test transfer", null);
+		} catch (IllegalStateException e) {
+			return false;
+		}
+		ledgerService.credit(toId, Money.of(amount), "test transfer", null);
+		return true;
+	}
+
+	private double balance(Long userId) {
+		return jdbcTemplate.queryForObject("SELECT COALESCE((SELECT b.balance FROM account_balance b WHERE b.user_id = u.id), u.balance) " +
+				"FROM user u WHERE u.id = ?", Double.class, userId);
+	}
+}
@@ -0,0 +1,96 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.domain.Customer;
+import com.example.ecommerce.domain.DeliveryPartner;
+import com.example.ecommerce.domain.Product;
+import com.example.ecommerce.dto.request.CheckoutRequest;
+import com.example.ecommerce.repository.CustomerRepository;
+import com.example.ecommerce.repository.DeliveryPartnerRepository;
+import com.example.ecommerce.service.impl.CustomerService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// the statements of a checkout, for a cart of one store and a cart of 10 stores:
+// with the batched inserts only the stock reservations grow with the number of stores.
+// rolled back, nothing is kept in the database
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class CheckoutRoundTripBenchmarkTests {
+
+	private static final int STORES = 10;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private DeliveryPartnerRepository deliveryPartnerRepository;
+
+	@Test
+	void checkoutStatementsDontGrowWithTheStores() {
+		List<Customer> customers = customerRepository.findAll(PageRequest.of(0, 1)).getContent();
+		List<DeliveryPartner> deliveryPartners = deliveryPartnerRepository.findAll(PageRequest.of(0, 1)).getContent();
+		List<Long> productIds = oneProductPerStore();
+		assumeTrue(!customers.isEmpty() && !deliveryPartners.isEmpty() && productIds.size() == STORES);
+		Long customerId = customers.get(0).getId();
+		Long deliveryPartnerId = deliveryPartners.get(0).getId();
+
+		long oneStore = checkoutStatements(customerId, deliveryPartnerId, productIds.subList(0, 1));
+		long tenStores = checkoutStatements(customerId, deliveryPartnerId, productIds);
+
+		// one stock reservation per product, everything else is batched
+		assertTrue(tenStores - oneStore <= STORES - 1,
+				"checkout statements: " + oneStore + " for 1 store, " + tenStores + " for " + STORES + " stores");
+	}
+
+	private long checkoutStatements(Long customerId, Long deliveryPartnerId, List<Long> productIds) {
+		Customer customer = customerRepository.findById(customerId).orElseThrow();
+		customer.getCart().setItems(new ArrayList<>());
+		customer.getCart().setPromotions(new ArrayList<>());
+		for (Long productId : productIds) {
+			customer.getCart().addItem(entityManager.find(Product.class, productId), 1);
+		}
+		customerRepository.save(customer);
+		entityManager.flush();
+		entityManager.clear();
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		customerService.checkout(customerId, new CheckoutRequest(deliveryPartnerId, "benchmark address", "CASH_ON_DELIVERY"));
+		entityManager.flush();
+		long statements = statistics.getPrepareStatementCount();
+		entityManager.clear();
+		return statements;
+	}
+
+	private List<Long> oneProductPerStore() {
+		List<Object[]> rows = entityManager.createQuery(
+						"SELECT p.id, p.store.id FROM Product p WHERE p.quantity > 0 AND p.hotStock = false ORDER BY p.id", Object[].class)
+				.setMaxResults(1000)
+				.getResultList();
+		Map<Long, Long> productByStore = new LinkedHashMap<>();
+		rows.forEach(row -> productByStore.putIfAbsent((Long) row[1], (Long) row[0]));
+		return productByStore.values().stream().limit(STORES).toList();
+	}
+}
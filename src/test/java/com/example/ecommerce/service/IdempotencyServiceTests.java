@@ -0,0 +1,118 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.dto.response.Response;
+import com.example.ecommerce.repository.IdempotencyRecordRepository;
+import com.example.ecommerce.service.service.IdempotencyService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the requests sent with an Idempotency-Key header, with an action counting its runs instead of a checkout
+@SpringBootTest
+class IdempotencyServiceTests {
+
+	private static final String OPERATION = "idempotency-test";
+	private static final Long USER_ID = 1L;
+
+	@Autowired
+	private IdempotencyService idempotencyService;
+
+	@Autowired
+	private IdempotencyRecordRepository idempotencyRecordRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final AtomicInteger runs = new AtomicInteger();
+
+	@AfterEach
+	void deleteRecords() {
+		jdbcTemplate.update("DELETE FROM idempotency_record WHERE id LIKE ?", OPERATION + "%");
+	}
+
+	@Test
+	void aRetryGetsTheRecordedResponseBack() {
+		String key = UUID.randomUUID().toString();
+
+		ResponseEntity<Response> first = idempotencyService.execute(OPERATION, USER_ID, key, "request", this::run);
+		ResponseEntity<Response> retry = idempotencyService.execute(OPERATION, USER_ID, key, "request", this::run);
+
+		assertEquals(1, runs.get());
+		assertEquals(first.getStatusCode(), retry.getStatusCode());
+		assertEquals(first.getBody().getMessage(), retry.getBody().getMessage());
+		assertEquals(Map.of("run", 1), retry.getBody().getData());
+	}
+
+	@Test
+	void aKeyReusedForAnotherRequestIsRejected() {
+		String key = UUID.randomUUID().toString();
+		idempotencyService.execute(OPERATION, USER_ID, key, "request", this::run);
+
+		assertThrows(IllegalArgumentException.class,
+				() -> idempotencyService.execute(OPERATION, USER_ID, key, "another request", this::run));
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	void aFailedRequestReleasesItsKey() {
+		String key = UUID.randomUUID().toString();
+
+		assertThrows(IllegalStateException.class, () -> idempotencyService.execute(OPERATION, USER_ID, key, "request", () -> {
+			throw new IllegalStateException("Not enough balance");
+		}));
+		idempotencyService.execute(OPERATION, USER_ID, key, "request", this::run);
+
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	void aStaleClaimIsTakenOver() {
+		String key = UUID.randomUUID().toString();
+		LocalDateTime longAgo = LocalDateTime.now().minusHours(1);
+		idempotencyRecordRepository.insertClaim(id(key), "request".hashCode(), UUID.randomUUID().toString(), longAgo, longAgo.plusDays(1));
+
+		idempotencyService.execute(OPERATION, USER_ID, key, "request", this::run);
+
+		assertEquals(1, runs.get());
+		assertTrue(idempotencyRecordRepository.findById(id(key)).orElseThrow().isCompleted());
+	}
+
+	@Test
+	void aRequestTakenOverWhileRunningIsRolledBack() {
+		String key = UUID.randomUUID().toString();
+		String sideEffect = OPERATION + ":side-effect:" + key;
+
+		assertThrows(IllegalStateException.class, () -> idempotencyService.execute(OPERATION, USER_ID, key, "request", () -> {
+			// a write of the action, in its transaction
+			LocalDateTime now = LocalDateTime.now();
+			idempotencyRecordRepository.insertClaim(sideEffect, 0, "side-effect", now, now.plusDays(1));
+			// another request takes the claim over as stale before this one records its response
+			jdbcTemplate.update("UPDATE idempotency_record SET claim_token = 'other' WHERE id = ?", id(key));
+			return run();
+		}));
+
+		assertTrue(idempotencyRecordRepository.findById(sideEffect).isEmpty());
+	}
+
+	private ResponseEntity<Response> run() {
+		return ResponseEntity.ok(Response.builder()
+				.status(200)
+				.message("Run successfully")
+				.data(Map.of("run", runs.incrementAndGet()))
+				.build());
+	}
+
+	private String id(String key) {
+		return OPERATION + ":" + USER_ID + ":" + key;
+	}
+}
@@ -0,0 +1,198 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.domain.OrderItem;
+import com.example.ecommerce.domain.Product;
+import com.example.ecommerce.repository.ProductRepository;
+import com.example.ecommerce.service.inventory.HotStockCounters;
+import com.example.ecommerce.service.service.InventoryService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// many threads checking out the same product at once: exactly the stock is sold, never more,
+// also when the product enters or leaves hot stock mode in the middle of the sale
+@SpringBootTest
+class InventoryReservationStressTests {
+
+	private static final int STOCK = 100;
+	private static final int THREADS = 32;
+	private static final int ATTEMPTS_PER_THREAD = 10;
+
+	@Autowired
+	private InventoryService inventoryService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private HotStockCounters hotStockCounters;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void concurrentReservationsNeverOversell() throws InterruptedException {
+		Long productId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM product", Long.class);
+		assumeTrue(productId != null);
+		Integer originalQuantity = jdbcTemplate.queryForObject("SELECT quantity FROM product WHERE id = ?", Integer.class, productId);
+		jdbcTemplate.update("UPDATE product SET quantity = ? WHERE id = ?", STOCK, productId);
+
+		try {
+			Product product = productRepository.findById(productId).orElseThrow();
+			AtomicInteger reserved = new AtomicInteger();
+			AtomicInteger rejected = new AtomicInteger();
+			CountDownLatch start = new CountDownLatch(1);
+			ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+			for (int i = 0; i < THREADS; i++) {
+				executor.submit(() -> {
+					start.await();
+					for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+						try {
+							inventoryService.reserve(List.of(OrderItem.builder().product(product).quantity(1).build()));
+							reserved.incrementAndGet();
+						} catch (IllegalStateException e) {
+							rejected.incrementAndGet();
+						}
+					}
+					return null;
+				});
+			}
+			start.countDown();
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+			assertEquals(STOCK, reserved.get());
+			assertEquals(THREADS * ATTEMPTS_PER_THREAD - STOCK, rejected.get());
+			assertEquals(0, jdbcTemplate.queryForObject("SELECT quantity FROM product WHERE id = ?", Integer.class, productId));
+		} finally {
+			jdbcTemplate.update("UPDATE product SET quantity = ? WHERE id = ?", originalQuantity, productId);
+		}
+	}
+
+	@Test
+	void disablingHotStockDuringTheSaleNeverOversells() throws InterruptedException {
+		Long productId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM product", Long.class);
+		assumeTrue(productId != null);
+		Integer originalQuantity = jdbcTemplate.queryForObject("SELECT quantity FROM product WHERE id = ?", Integer.class, productId);
+		jdbcTemplate.update("UPDATE product SET quantity = ?, hot_stock = false WHERE id = ?", STOCK, productId);
+		hotStockCounters.enable(productId);
+
+		try {
+			Product product = productRepository.findById(productId).orElseThrow();
+			AtomicInteger reserved = new AtomicInteger();
+			CountDownLatch start = new CountDownLatch(1);
+			CountDownLatch halfway = new CountDownLatch(STOCK / 2);
+			ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+			for (int i = 0; i < THREADS; i++) {
+				executor.submit(() -> {
+					start.await();
+					for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+						try {
+							inventoryService.reserve(List.of(OrderItem.builder().product(product).quantity(1).build()));
+							reserved.incrementAndGet();
+							halfway.countDown();
+						} catch (IllegalStateException e) {
+							// sold out, or the mode was being switched
+						}
+					}
+					return null;
+				});
+			}
+			// switched while the reservations are taken from the counter
+			executor.submit(() -> {
+				halfway.await();
+				hotStockCounters.disable(productId);
+				return null;
+			});
+			start.countDown();
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+			hotStockCounters.flush();
+
+			assertEquals(STOCK, reserved.get());
+			assertEquals(0, jdbcTemplate.queryForObject("SELECT quantity FROM product WHERE id = ?", Integer.class, productId));
+			assertFalse(jdbcTemplate.queryForObject("SELECT hot_stock FROM product WHERE id = ?", Boolean.class, productId));
+		} finally {
+			jdbcTemplate.update("UPDATE product SET quantity = ?, hot_stock = false WHERE id = ?", originalQuantity, productId);
+		}
+	}
+
+	@Test
+	void enablingHotStockDuringTheSaleNeverOversells() throws InterruptedException {
+		Long productId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM product", Long.class);
+		assumeTrue(productId != null);
+		Integer originalQuantity = jdbcTemplate.queryForObject("SELECT quantity FROM product WHERE id = ?", Integer.class, productId);
+		jdbcTemplate.update("UPDATE product SET quantity = ?, hot_stock = false WHERE id = ?", STOCK, productId);
+
+		try {
+			Product product = productRepository.findById(productId).orElseThrow();
+			AtomicInteger reserved = new AtomicInteger();
+			CountDownLatch start = new CountDownLatch(1);
+			CountDownLatch halfway = new CountDownLatch(STOCK / 2);
+			ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+			for (int i = 0; i < THREADS; i++) {
+				executor.submit(() -> {
+					start.await();
+					for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+						try {
+							inventoryService.reserve(List.of(OrderItem.builder().product(product).quantity(1).build()));
+							reserved.incrementAndGet();
+							halfway.countDown();
+						} catch (IllegalStateException e) {
+							// sold out, or the mode was being switched
+						}
+					}
+					return null;
+				});
+			}
+			// switched while the reservations update the row of the product
+			executor.submit(() -> {
+				halfway.await();
+				hotStockCounters.enable(productId);
+				return null;
+			});
+			start.countDown();
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+			hotStockCounters.flush();
+
+			assertEquals(STOCK, reserved.get());
+			assertEquals(0, jdbcTemplate.queryForObject("SELECT quantity FROM product WHERE id = ?", Integer.class, productId));
+			assertTrue(jdbcTemplate.queryForObject("SELECT hot_stock FROM product WHERE id = ?", Boolean.class, productId));
+		} finally {
+			if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT hot_stock FROM product WHERE id = ?", Boolean.class, productId))) {
+				hotStockCounters.disable(productId);
+			}
+			jdbcTemplate.update("UPDATE product SET quantity = ?, hot_stock = false WHERE id = ?", originalQuantity, productId);
+		}
+	}
+
+	@Test
+	void aMissingItemRollsBackTheWholeReservation() {
+		List<Long> productIds = jdbcTemplate.queryForList("SELECT id FROM product ORDER BY id LIMIT 2", Long.class);
+		assumeTrue(productIds.size() == 2);
+		Product first = productRepository.findById(productIds.get(0)).orElseThrow();
+		Product second = productRepository.findById(productIds.get(1)).orElseThrow();
+
+		List<OrderItem> items = List.of(
+				OrderItem.builder().product(first).quantity(1).build(),
+				OrderItem.builder().product(second).quantity(second.getQuantity() + 1).build());
+
+		assertThrows(IllegalStateException.class, () -> inventoryService.reserve(items));
+		assertEquals(first.getQuantity(), productRepository.findById(first.getId()).orElseThrow().getQuantity());
+	}
+}
@@ -0,0 +1,115 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.domain.Customer;
+import com.example.ecommerce.dto.request.product.ProductFilterRequest;
+import com.example.ecommerce.repository.CustomerRepository;
+import com.example.ecommerce.service.impl.CustomerService;
+import com.example.ecommerce.service.impl.StoreService;
+import com.example.ecommerce.service.service.ProductService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+// the number of SQL statements of a listing page must not grow with the number of elements of the page
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ListingStatementCountTests {
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private StoreService storeService;
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	@Test
+	void listsProductsInAConstantNumberOfStatements() {
+		// the page, its count and the images of its products
+		assertTrue(countStatements(() -> productService.getAllProducts(0, 50, new ProductFilterRequest(), "name", "asc")) <= 3);
+		assertTrue(countStatements(() -> productService.getAllProducts(0, 50, ProductFilterRequest.builder().inStock(true).build(), "name", "asc")) <= 3);
+	}
+
+	@Test
+	void searchesStoresInAConstantNumberOfStatements() {
+		// the page and its count, the number of products and the rating are computed in the page query
+		assertTrue(countStatements(() -> storeService.searchStore("", 0, 50)) <= 2);
+	}
+
+	@Test
+	void listsOrdersInAConstantNumberOfStatements() {
+		List<Customer> customers = customerRepository.findAll(PageRequest.of(0, 1)).getContent();
+		assumeFalse(customers.isEmpty());
+		Long customerId = customers.get(0).getId();
+
+		// the customer, the page, its count and one batch of stores. the items and delivery partners are only
+		// loaded for the orders placed before their amounts were stored
+		assertTrue(countStatements(() -> customerService.getOrders(customerId, 0, 50, "ALL", "createdAt", "desc",
+				LocalDateTime.of(1970, 1, 1, 0, 0), LocalDateTime.now())) <= 7);
+	}
+
+	@Test
+	void listsOrdersWithoutTheirItems() throws Exception {
+		List<Customer> customers = customerRepository.findAll(PageRequest.of(0, 1)).getContent();
+		assumeFalse(customers.isEmpty());
+		Long customerId = customers.get(0).getId();
+
+		String json = transactionTemplate.execute(status -> {
+			try {
+				return objectMapper.writeValueAsString(customerService.getOrders(customerId, 0, 50, "ALL", "createdAt", "desc",
+						LocalDateTime.of(1970, 1, 1, 0, 0), LocalDateTime.now()).getBody());
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		assertFalse(json.contains("\"items\""));
+	}
+
+	// like a request: the response is serialized in the same session, as with open-in-view
+	private long countStatements(Supplier<ResponseEntity<?>> listing) {
+		return transactionTemplate.execute(status -> {
+			statistics.clear();
+			try {
+				objectMapper.writeValueAsString(listing.get().getBody());
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+			return statistics.getPrepareStatementCount();
+		});
+	}
+}
@@ -0,0 +1,94 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.domain.Category;
+import com.example.ecommerce.dto.request.product.ProductFilterRequest;
+import com.example.ecommerce.repository.ProductRepository;
+import com.example.ecommerce.service.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// runs every filter combination of the product listing and checks, with the statement history of the
+// performance schema, that none of the statements on the product table is run without an index nor examines
+// the whole table. only meaningful on a database with enough products for the optimizer to prefer the indexes
+@SpringBootTest
+class ProductFilterBenchmarkTests {
+
+	private static final int MIN_PRODUCTS = 10_000;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Test
+	void everyFilterCombinationIsIndexBacked() {
+		long numberOfProducts = productRepository.count();
+		assumeTrue(numberOfProducts >= MIN_PRODUCTS);
+		assumeTrue(statementHistoryEnabled());
+
+		for (Map.Entry<String, ProductFilterRequest> combination : combinations().entrySet()) {
+			List<Map<String, Object>> productStatements = transactionTemplate.execute(status -> {
+				// the history is per connection, the transaction keeps the same one
+				productService.getAllProducts(0, 20, combination.getValue(), "id", "asc");
+				return productStatements();
+			});
+
+			assertFalse(productStatements.isEmpty(), combination.getKey() + " doesn't query the product table");
+			for (Map<String, Object> statement : productStatements) {
+				assertEquals(0, ((Number) statement.get("NO_INDEX_USED")).intValue(),
+						combination.getKey() + " scans the product table: " + statement.get("SQL_TEXT"));
+				assertTrue(((Number) statement.get("ROWS_EXAMINED")).longValue() < numberOfProducts,
+						combination.getKey() + " examines the whole product table: " + statement.get("SQL_TEXT"));
+			}
+		}
+	}
+
+	private boolean statementHistoryEnabled() {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM performance_schema.setup_consumers " +
+				"WHERE NAME = 'events_statements_history' AND ENABLED = 'YES'", Long.class) > 0;
+	}
+
+	// the last statements of this connection on the product table, the ones of the listing just run
+	private List<Map<String, Object>> productStatements() {
+		return jdbcTemplate.queryForList("SELECT SQL_TEXT, NO_INDEX_USED, ROWS_EXAMINED " +
+				"FROM performance_schema.events_statements_history " +
+				"WHERE THREAD_ID = (SELECT THREAD_ID FROM performance_schema.threads WHERE PROCESSLIST_ID = CONNECTION_ID()) " +
+				"AND SQL_TEXT LIKE '% from product %' AND SQL_TEXT NOT LIKE '%performance_schema%'");
+	}
+
+	private Map<String, ProductFilterRequest> combinations() {
+		Map<String, ProductFilterRequest> combinations = new LinkedHashMap<>();
+		combinations.put("category", ProductFilterRequest.builder().categories(List.of(Category.PHONES)).build());
+		combinations.put("categories", ProductFilterRequest.builder().categories(List.of(Category.PHONES, Category.CLOTHING)).build());
+		combinations.put("category + price", ProductFilterRequest.builder().categories(List.of(Category.PHONES)).minPrice(100.0).maxPrice(1000.0).build());
+		combinations.put("category + in stock", ProductFilterRequest.builder().categories(List.of(Category.PHONES)).inStock(true).build());
+		combinations.put("store", ProductFilterRequest.builder().storeId(firstStoreId()).build());
+		combinations.put("store + category", ProductFilterRequest.builder().storeId(firstStoreId()).categories(List.of(Category.PHONES)).build());
+		combinations.put("price", ProductFilterRequest.builder().minPrice(100.0).maxPrice(200.0).build());
+		combinations.put("min rating", ProductFilterRequest.builder().minRating(4.5).build());
+		combinations.put("sold out", ProductFilterRequest.builder().inStock(false).build());
+		combinations.put("on sale", ProductFilterRequest.builder().onSale(true).build());
+		return combinations;
+	}
+
+	private Long firstStoreId() {
+		return jdbcTemplate.queryForObject("SELECT MIN(id) FROM store", Long.class);
+	}
+}
@@ -0,0 +1,89 @@
+package com.example.ecommerce.service.cart;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartStoreTests {
+
+	@Test
+	void changesBetweenTwoFlushesAreWrittenOnce() {
+		RecordingPersister persister = new RecordingPersister();
+		CartStore cartStore = new CartStore(persister, 100, 30, 4);
+
+		cartStore.update(1L, cart -> cart.withItemAdded(10L, 1));
+		cartStore.update(1L, cart -> cart.withItemAdded(10L, 2));
+		cartStore.update(1L, cart -> cart.withItemAdded(11L, 1));
+		cartStore.update(1L, cart -> cart.withPromotionAdded(5L));
+		assertTrue(persister.written.isEmpty());
+
+		cartStore.flush();
+		assertEquals(List.of(new CartSnapshot(
+				List.of(new CartSnapshot.Line(10L, 3), new CartSnapshot.Line(11L, 1)), List.of(5L))), persister.written);
+		assertEquals(1, persister.loads);
+
+		cartStore.flush();
+		assertEquals(1, persister.written.size());
+	}
+
+	@Test
+	void removingAProductNotInTheCartFails() {
+		CartStore cartStore = new CartStore(new RecordingPersister(), 100, 30, 4);
+		cartStore.update(1L, cart -> cart.withItemAdded(10L, 1));
+
+		assertThrows(IllegalStateException.class, () -> cartStore.update(1L, cart -> cart.withItemRemoved(11L)));
+		assertEquals(1, cartStore.get(1L).lines().size());
+	}
+
+	@Test
+	void aCheckoutOnlyHoldsItsOwnCart() throws Exception {
+		// 1 and 5 share a lock stripe of 4
+		CartStore cartStore = new CartStore(new RecordingPersister(), 100, 30, 4);
+		cartStore.update(1L, cart -> cart.withItemAdded(10L, 1));
+
+		TransactionSynchronizationManager.initSynchronization();
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+		try {
+			cartStore.flushForCheckout(1L);
+
+			// from another thread, the lock of the stripe is reentrant
+			assertEquals(1, CompletableFuture.supplyAsync(() -> cartStore.update(5L, cart -> cart.withItemAdded(10L, 1)))
+					.get(1, TimeUnit.SECONDS).lines().size());
+			assertThrows(IllegalStateException.class, () -> cartStore.update(1L, cart -> cart.withItemAdded(11L, 1)));
+
+			TransactionSynchronizationManager.getSynchronizations()
+					.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+		} finally {
+			TransactionSynchronizationManager.setActualTransactionActive(false);
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		assertEquals(2, cartStore.update(1L, cart -> cart.withItemAdded(11L, 1)).lines().size());
+	}
+
+	private static class RecordingPersister extends CartPersister {
+		private final List<CartSnapshot> written = new ArrayList<>();
+		private int loads;
+
+		RecordingPersister() {
+			super(null, null, null);
+		}
+
+		@Override
+		public CartSnapshot load(Long customerId) {
+			loads++;
+			return CartSnapshot.EMPTY;
+		}
+
+		@Override
+		public void write(Long customerId, CartSnapshot snapshot) {
+			written.add(snapshot);
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package com.example.ecommerce.service.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedStockCounterTests {
+
+	@Test
+	void takesFromSeveralStripesWhenNoneHasEnough() {
+		StripedStockCounter counter = new StripedStockCounter(4, 10);
+
+		assertTrue(counter.tryTake(7));
+		assertEquals(3, counter.available());
+		assertFalse(counter.tryTake(4));
+		assertEquals(3, counter.available());
+		assertTrue(counter.tryTake(3));
+		assertEquals(0, counter.available());
+	}
+
+	@Test
+	void concurrentTakesNeverGoBelowZero() throws InterruptedException {
+		int stock = 10_000;
+		int threads = 16;
+		StripedStockCounter counter = new StripedStockCounter(8, stock);
+		AtomicLong taken = new AtomicLong();
+		CountDownLatch start = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		for (int i = 0; i < threads; i++) {
+			int quantity = i % 3 + 1;
+			executor.submit(() -> {
+				start.await();
+				for (int attempt = 0; attempt < stock; attempt++) {
+					if (counter.tryTake(quantity)) {
+						taken.addAndGet(quantity);
+					}
+				}
+				return null;
+			});
+		}
+		start.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+		assertEquals(stock, taken.get() + counter.available());
+	}
+}
@@ -0,0 +1,38 @@
+package com.example.ecommerce.service.promotion;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DailyClaimsTests {
+
+	@Test
+	void aCustomerIsMarkedOncePerDay() {
+		DailyClaims claims = new DailyClaims(null);
+		LocalDate today = LocalDate.now();
+
+		assertTrue(claims.tryMark(today, 42L));
+		assertFalse(claims.tryMark(today, 42L));
+		assertTrue(claims.contains(today, 42L));
+		assertFalse(claims.contains(today.plusDays(1), 42L));
+		assertTrue(claims.tryMark(today.plusDays(1), 42L));
+
+		claims.unmark(today, 42L);
+		assertFalse(claims.contains(today, 42L));
+	}
+
+	@Test
+	void daysBeforeYesterdayAreDropped() {
+		DailyClaims claims = new DailyClaims(null);
+		LocalDate today = LocalDate.now();
+		claims.tryMark(today.minusDays(2), 1L);
+		claims.tryMark(today.minusDays(1), 1L);
+
+		claims.dropOldDays();
+
+		assertFalse(claims.contains(today.minusDays(2), 1L));
+		assertTrue(claims.contains(today.minusDays(1), 1L));
+	}
+}
@@ -0,0 +1,166 @@
+package com.example.ecommerce.service.promotion;
+
+import com.example.ecommerce.domain.Promotion;
+import com.example.ecommerce.domain.PromotionSet;
+import com.example.ecommerce.domain.Voucher;
+import com.example.ecommerce.domain.VoucherSet;
+import com.example.ecommerce.service.service.MiniGamePlayingRecordService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the engine with the claims of the set counted in memory instead of the database
+class FlashClaimEngineTests {
+
+	private static final long TIMEOUT_MS = 500;
+
+	private final DailyClaims dailyClaims = new DailyClaims(null);
+	private final StubCounters counters = new StubCounters();
+	private final RecordedAdmissions records = new RecordedAdmissions();
+	private final VoucherSet voucherSet = new VoucherSet();
+	private FlashClaimEngine engine;
+
+	{
+		voucherSet.setId(1L);
+	}
+
+	@AfterEach
+	void shutdown() {
+		counters.release.countDown();
+		if (engine != null) {
+			engine.shutdown();
+		}
+	}
+
+	@Test
+	void aCustomerIsAdmittedOncePerDay() {
+		engine = engine(200);
+		counters.available.set(10);
+
+		assertNotNull(engine.claim(voucherSet, 1L));
+		assertThrows(IllegalArgumentException.class, () -> engine.claim(voucherSet, 1L));
+
+		assertEquals(List.of(List.of(1L)), counters.batches);
+		// logged on the day the customer was marked on
+		assertEquals(1, records.admissions.size());
+		assertEquals(1L, records.admissions.get(0).customerId());
+		assertTrue(dailyClaims.contains(records.admissions.get(0).admittedAt().toLocalDate(), 1L));
+	}
+
+	@Test
+	void anExhaustedSetIsRejectedUntilItIsForgotten() {
+		engine = engine(200);
+		counters.available.set(1);
+
+		engine.claim(voucherSet, 1L);
+		assertThrows(IllegalStateException.class, () -> engine.claim(voucherSet, 2L));
+		// rejected right away, without a batch
+		assertThrows(IllegalStateException.class, () -> engine.claim(voucherSet, 3L));
+		assertEquals(List.of(List.of(1L), List.of(2L)), counters.batches);
+		assertFalse(dailyClaims.contains(LocalDate.now(), 2L));
+		assertFalse(dailyClaims.contains(LocalDate.now(), 3L));
+
+		// vouchers added to the set
+		counters.available.set(1);
+		engine.forget(voucherSet.getId());
+
+		assertNotNull(engine.claim(voucherSet, 3L));
+	}
+
+	@Test
+	void aClaimCancelledInTheQueueIsSkipped() throws Exception {
+		engine = engine(1);
+		counters.available.set(10);
+		counters.blocked = true;
+
+		// the first claim holds the only drainer in its batch
+		CompletableFuture<Promotion> first = CompletableFuture.supplyAsync(() -> engine.claim(voucherSet, 1L));
+		assertTrue(counters.entered.await(5, TimeUnit.SECONDS));
+		// the second one waits in the queue until it times out
+		assertThrows(IllegalStateException.class, () -> engine.claim(voucherSet, 2L));
+		assertFalse(dailyClaims.contains(LocalDate.now(), 2L));
+
+		counters.release.countDown();
+		assertNotNull(first.get(5, TimeUnit.SECONDS));
+		assertNotNull(engine.claim(voucherSet, 3L));
+
+		assertEquals(List.of(List.of(1L), List.of(3L)), counters.batches);
+	}
+
+	@Test
+	void aFailedBatchUnmarksItsCustomers() {
+		engine = engine(200);
+		counters.available.set(10);
+		counters.failing = true;
+
+		assertThrows(IllegalStateException.class, () -> engine.claim(voucherSet, 1L));
+		assertFalse(dailyClaims.contains(LocalDate.now(), 1L));
+
+		// the customer can try again
+		counters.failing = false;
+		assertNotNull(engine.claim(voucherSet, 1L));
+	}
+
+	private FlashClaimEngine engine(int batchSize) {
+		return new FlashClaimEngine(counters, records, dailyClaims, 100, batchSize, TIMEOUT_MS, 1);
+	}
+
+	private static class StubCounters extends PromotionSetCounters {
+		private final AtomicInteger available = new AtomicInteger();
+		private final List<List<Long>> batches = Collections.synchronizedList(new ArrayList<>());
+		private final CountDownLatch entered = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+		private volatile boolean blocked;
+		private volatile boolean failing;
+
+		private StubCounters() {
+			super(null, null, null, null);
+		}
+
+		@Override
+		public List<Promotion> claimBatch(PromotionSet promotionSet, List<Long> customerIds) {
+			batches.add(List.copyOf(customerIds));
+			if (blocked) {
+				blocked = false;
+				entered.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			if (failing) {
+				throw new IllegalStateException("Deadlock found when trying to get lock");
+			}
+			List<Promotion> claimed = new ArrayList<>();
+			while (claimed.size() < customerIds.size() && available.getAndUpdate(left -> Math.max(left - 1, 0)) > 0) {
+				claimed.add(new Voucher());
+			}
+			return claimed;
+		}
+	}
+
+	private static class RecordedAdmissions implements MiniGamePlayingRecordService {
+		private final List<Admission> admissions = Collections.synchronizedList(new ArrayList<>());
+
+		@Override
+		public boolean checkIfCustomerSavedAVoucherToday(Long customerId) {
+			return false;
+		}
+
+		@Override
+		public void saveMiniGamePlayingRecords(List<Admission> admissions) {
+			this.admissions.addAll(admissions);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.example.ecommerce.service.promotion;
+
+import com.example.ecommerce.domain.*;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromotionEligibilityTests {
+
+	private final LocalDateTime now = LocalDateTime.now();
+
+	@Test
+	void splitsThePromotionsAgainstTheStoresOfTheCart() {
+		Store inCart = store(1L);
+		Store notInCart = store(2L);
+		Product product = Product.builder().id(7L).price(10.0).quantity(10).store(inCart).build();
+		CartPricing pricing = CartPricing.of(List.of(OrderItem.builder().product(product).quantity(1).build()));
+
+		Voucher voucher = voucher(now.minusDays(1), now.plusDays(1));
+		Voucher notStarted = voucher(now.plusDays(1), now.plusDays(2));
+		Coupon couponOfCart = coupon(inCart);
+		Coupon couponOfOtherStore = coupon(notInCart);
+		Coupon used = coupon(inCart);
+		used.setUsed(true);
+
+		PromotionEligibility eligibility = PromotionEligibility.evaluate(
+				List.of(voucher, notStarted, couponOfCart, couponOfOtherStore, used), pricing, now);
+
+		assertEquals(List.of(voucher, couponOfCart), eligibility.usable());
+		assertEquals(List.of(notStarted, couponOfOtherStore, used), eligibility.unusable());
+		assertFalse(eligibility.allUsable());
+	}
+
+	private Store store(Long id) {
+		Store store = new Store();
+		store.setId(id);
+		return store;
+	}
+
+	private Voucher voucher(LocalDateTime startAt, LocalDateTime expiredAt) {
+		VoucherSet voucherSet = new VoucherSet();
+		voucherSet.setStartAt(startAt);
+		voucherSet.setExpiredAt(expiredAt);
+		return voucherSet.mint();
+	}
+
+	private Coupon coupon(Store store) {
+		CouponSet couponSet = new CouponSet();
+		couponSet.setStartAt(now.minusDays(1));
+		couponSet.setExpiredAt(now.plusDays(1));
+		couponSet.setStore(store);
+		return couponSet.mint();
+	}
+}
@@ -0,0 +1,239 @@
+package com.example.ecommerce.service.promotion;
+
+import com.example.ecommerce.domain.Customer;
+import com.example.ecommerce.domain.DeliveryPartner;
+import com.example.ecommerce.domain.Voucher;
+import com.example.ecommerce.domain.VoucherSet;
+import com.example.ecommerce.dto.request.CheckoutRequest;
+import com.example.ecommerce.repository.CustomerRepository;
+import com.example.ecommerce.repository.DeliveryPartnerRepository;
+import com.example.ecommerce.repository.ProductRepository;
+import com.example.ecommerce.repository.PromotionSetRepository;
+import com.example.ecommerce.service.impl.CustomerService;
+import com.example.ecommerce.service.service.PromotionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// the issued / claimed / used counters of the voucher sets, against the promotions actually in the table.
+// the sets of a test are deleted with their vouchers after it
+@SpringBootTest
+class PromotionSetCountersTests {
+
+	private static final int THREADS = 16;
+
+	@Autowired
+	private PromotionSetCounters promotionSetCounters;
+
+	@Autowired
+	private PromotionSetRepository promotionSetRepository;
+
+	@Autowired
+	private PromotionService promotionService;
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private DeliveryPartnerRepository deliveryPartnerRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final List<Long> voucherSetIds = new ArrayList<>();
+	private Customer customer;
+
+	@BeforeEach
+	void setUp() {
+		List<Customer> customers = customerRepository.findAll(PageRequest.of(0, 1)).getContent();
+		assumeFalse(customers.isEmpty());
+		customer = customers.get(0);
+	}
+
+	@AfterEach
+	void deleteVoucherSets() {
+		for (Long voucherSetId : voucherSetIds) {
+			jdbcTemplate.update("DELETE FROM promotion WHERE voucher_set_id = ?", voucherSetId);
+			jdbcTemplate.update("DELETE FROM promotion_set WHERE id = ?", voucherSetId);
+		}
+	}
+
+	@Test
+	void theSetsCreatedBeforeTheCountersAreCountedFromTheirVouchers() {
+		VoucherSet voucherSet = voucherSet(null);
+		// a free voucher, a claimed one and a used one, created in advance as they used to be
+		insertVoucher(voucherSet.getId(), null, false);
+		insertVoucher(voucherSet.getId(), customer.getId(), false);
+		insertVoucher(voucherSet.getId(), customer.getId(), true);
+
+		promotionSetCounters.countUncountedSets();
+
+		assertCounters(voucherSet.getId(), 3, 2, 1);
+		// counted once, a set with counters is left as it is
+		insertVoucher(voucherSet.getId(), null, false);
+		promotionSetCounters.countUncountedSets();
+		assertCounters(voucherSet.getId(), 3, 2, 1);
+	}
+
+	@Test
+	void aSetNotCountedYetIsNotTakenForAnEmptyOne() {
+		VoucherSet voucherSet = voucherSet(null);
+		insertVoucher(voucherSet.getId(), null, false);
+
+		assertThrows(IllegalStateException.class, () -> promotionSetCounters.claimBatch(voucherSet, List.of(customer.getId())));
+
+		promotionSetCounters.countUncountedSets();
+		assertEquals(1, promotionSetCounters.claimBatch(voucherSet, List.of(customer.getId())).size());
+	}
+
+	@Test
+	void theFreeVouchersOfAnOldSetAreWithdrawnWithIt() {
+		VoucherSet voucherSet = voucherSet(null);
+		insertVoucher(voucherSet.getId(), null, false);
+		insertVoucher(voucherSet.getId(), null, false);
+		insertVoucher(voucherSet.getId(), null, false);
+		insertVoucher(voucherSet.getId(), customer.getId(), false);
+		promotionSetCounters.countUncountedSets();
+
+		promotionSetCounters.withdrawn(voucherSet, 2);
+		assertCounters(voucherSet.getId(), 2, 1, 0);
+		assertEquals(2, countVouchers(voucherSet.getId()));
+
+		// more than left to claim, the claimed voucher stays
+		promotionSetCounters.withdrawn(voucherSet, 5);
+		assertCounters(voucherSet.getId(), 1, 1, 0);
+		assertEquals(1, countVouchers(voucherSet.getId()));
+	}
+
+	@Test
+	void concurrentClaimsNeverClaimMoreThanIssued() throws InterruptedException {
+		int issued = 5;
+		VoucherSet voucherSet = voucherSet(issued);
+		AtomicInteger claimed = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		for (int i = 0; i < THREADS; i++) {
+			executor.execute(() -> {
+				try {
+					start.await();
+					promotionSetCounters.claim(voucherSet, customer);
+					claimed.incrementAndGet();
+				} catch (IllegalStateException e) {
+					rejected.incrementAndGet();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+		start.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+		assertEquals(issued, claimed.get());
+		assertEquals(THREADS - issued, rejected.get());
+		assertCounters(voucherSet.getId(), issued, issued, 0);
+		assertEquals(issued, countVouchers(voucherSet.getId()));
+	}
+
+	@Test
+	void aDeletedVoucherIsTakenOffTheCounters() {
+		VoucherSet voucherSet = voucherSet(3);
+		Voucher voucher = (Voucher) promotionSetCounters.claim(voucherSet, customer);
+		promotionSetCounters.claim(voucherSet, customer);
+		assertCounters(voucherSet.getId(), 3, 2, 0);
+
+		promotionService.deleteVoucherById(voucher.getId());
+
+		assertCounters(voucherSet.getId(), 2, 1, 0);
+		assertEquals(1, countVouchers(voucherSet.getId()));
+	}
+
+	@Test
+	void aVoucherUsedAtCheckoutIsCountedAsUsed() {
+		List<DeliveryPartner> deliveryPartners = deliveryPartnerRepository.findAll(PageRequest.of(0, 1)).getContent();
+		Long productId = jdbcTemplate.queryForObject(
+				"SELECT MIN(id) FROM product WHERE quantity > 0 AND hot_stock = false", Long.class);
+		assumeTrue(!deliveryPartners.isEmpty() && productId != null);
+		VoucherSet voucherSet = voucherSet(2);
+
+		// rolled back, the counters are looked at in the transaction of the checkout
+		transactionTemplate.executeWithoutResult(status -> {
+			Voucher voucher = (Voucher) promotionSetCounters.claim(voucherSet, customer);
+			Customer buyer = customerRepository.findById(customer.getId()).orElseThrow();
+			buyer.getCart().setItems(new ArrayList<>());
+			buyer.getCart().setPromotions(new ArrayList<>());
+			buyer.getCart().addItem(productRepository.findById(productId).orElseThrow(), 1);
+			buyer.getCart().addVoucher(voucher);
+			customerRepository.save(buyer);
+
+			customerService.checkout(customer.getId(),
+					new CheckoutRequest(deliveryPartners.get(0).getId(), "test address", "CASH_ON_DELIVERY"));
+
+			assertCounters(voucherSet.getId(), 2, 1, 1);
+			status.setRollbackOnly();
+		});
+	}
+
+	private VoucherSet voucherSet(Integer issued) {
+		VoucherSet voucherSet = new VoucherSet();
+		voucherSet.setName("counters-test");
+		voucherSet.setPercent(10);
+		voucherSet.setCreatedAt(LocalDateTime.now());
+		voucherSet.setStartAt(LocalDateTime.now().minusDays(1));
+		voucherSet.setExpiredAt(LocalDateTime.now().plusDays(1));
+		voucherSet.setVouchers(new ArrayList<>());
+		// null for a set created before the counters
+		voucherSet.setIssued(issued);
+		voucherSet.setClaimed(issued == null ? null : 0);
+		voucherSet.setUsed(issued == null ? null : 0);
+		VoucherSet saved = promotionSetRepository.save(voucherSet);
+		voucherSetIds.add(saved.getId());
+		return saved;
+	}
+
+	private void insertVoucher(Long voucherSetId, Long customerId, boolean used) {
+		jdbcTemplate.update("INSERT INTO promotion (dtype, code, is_used, created_at, customer_id, voucher_set_id) " +
+				"VALUES ('voucher', ?, ?, ?, ?, ?)", "counters-test", used, LocalDateTime.now(), customerId, voucherSetId);
+	}
+
+	private long countVouchers(Long voucherSetId) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM promotion WHERE voucher_set_id = ?", Long.class, voucherSetId);
+	}
+
+	// read with JDBC, the counters are only changed by updates the persistence context doesn't see
+	private void assertCounters(Long voucherSetId, int issued, int claimed, int used) {
+		Map<String, Object> counters = jdbcTemplate.queryForMap("SELECT issued, claimed, used FROM promotion_set WHERE id = ?", voucherSetId);
+		assertEquals(issued, ((Number) counters.get("issued")).intValue());
+		assertEquals(claimed, ((Number) counters.get("claimed")).intValue());
+		assertEquals(used, ((Number) counters.get("used")).intValue());
+	}
+}
@@ -0,0 +1,43 @@
+package com.example.ecommerce.service.search;
+
+import com.example.ecommerce.dto.response.Suggestion;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PrefixIndexTests {
+
+	@Test
+	void suggestsTheBestScoresFromTheStartOfAnyWord() {
+		PrefixIndex index = PrefixIndex.build(List.of(
+				new Suggestion(1L, "Samsung Galaxy S23", 10),
+				new Suggestion(2L, "Galaxy Buds", 50),
+				new Suggestion(3L, "Giày thể thao", 30)), 5);
+
+		assertEquals(List.of(2L, 1L), ids(index.suggest("gala")));
+		assertEquals(List.of(3L), ids(index.suggest("giay")));
+		assertEquals(List.of(1L), ids(index.suggest("galaxy s")));
+		assertEquals(List.of(2L, 1L), ids(index.suggest("galaxy ")));
+		assertEquals(List.of(), ids(index.suggest("gala ")));
+	}
+
+	@Test
+	void suggestsTheBestScoresForWidePrefixes() {
+		List<Suggestion> suggestions = new ArrayList<>();
+		for (long i = 0; i < 5000; i++) {
+			suggestions.add(new Suggestion(i, "product " + i, i));
+		}
+		PrefixIndex index = PrefixIndex.build(suggestions, 3);
+
+		assertEquals(List.of(4999L, 4998L, 4997L), ids(index.suggest("p")));
+		assertEquals(List.of(1999L, 1998L, 1997L), ids(index.suggest("product 1")));
+		assertEquals(List.of(12L), ids(index.suggest("product 12 ")));
+	}
+
+	private List<Long> ids(List<Suggestion> suggestions) {
+		return suggestions.stream().map(Suggestion::getId).toList();
+	}
+}
@@ -0,0 +1,72 @@
+package com.example.ecommerce.service.search;
+
+import com.example.ecommerce.domain.Category;
+import com.example.ecommerce.domain.Product;
+import com.example.ecommerce.domain.Store;
+import com.example.ecommerce.dto.request.product.ProductFilterRequest;
+import com.example.ecommerce.dto.response.ProductFacets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductFacetIndexTests {
+
+	private ProductFacetIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new ProductFacetIndex(null, null, new double[]{100, 1000});
+		Store first = store(1L, "First");
+		Store second = store(2L, "Second");
+		index.put(product(1L, Category.PHONES, first, 50.0, 4.5, 3));
+		index.put(product(2L, Category.PHONES, second, 500.0, 3.0, 0));
+		index.put(product(3L, Category.CLOTHING, first, 5000.0, 0, 7));
+	}
+
+	@Test
+	void countsEveryFacetOfTheProducts() {
+		ProductFacets facets = index.facets(new ProductFilterRequest());
+
+		assertEquals(3, facets.getTotal());
+		assertEquals(Map.of(Category.PHONES, 2L, Category.CLOTHING, 1L), facets.getCategories());
+		assertEquals(List.of(1L, 1L, 1L), facets.getPrices().stream().map(ProductFacets.PriceRangeCount::getCount).toList());
+		// 4 and up, 3 and up, 2 and up, 1 and up
+		assertEquals(List.of(1L, 2L, 2L, 2L), facets.getRatings().stream().map(ProductFacets.RatingCount::getCount).toList());
+	}
+
+	@Test
+	void countsTheOtherValuesOfASelectedFacet() {
+		ProductFacets facets = index.facets(ProductFilterRequest.builder()
+				.categories(List.of(Category.PHONES))
+				.inStock(true)
+				.build());
+
+		assertEquals(1, facets.getTotal());
+		// the clothing would be found by selecting its category instead
+		assertEquals(Map.of(Category.PHONES, 1L, Category.CLOTHING, 1L), facets.getCategories());
+		assertEquals(1, facets.getStores().size());
+		assertEquals("First", facets.getStores().get(0).getName());
+	}
+
+	private Store store(Long id, String name) {
+		Store store = new Store();
+		store.setId(id);
+		store.setName(name);
+		return store;
+	}
+
+	private Product product(Long id, Category category, Store store, Double price, double rating, int quantity) {
+		return Product.builder()
+				.id(id)
+				.category(category)
+				.store(store)
+				.price(price)
+				.averageRating(rating)
+				.quantity(quantity)
+				.build();
+	}
+}
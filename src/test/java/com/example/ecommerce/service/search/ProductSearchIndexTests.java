@@ -0,0 +1,58 @@
+package com.example.ecommerce.service.search;
+
+import com.example.ecommerce.domain.Category;
+import com.example.ecommerce.domain.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSearchIndexTests {
+
+	private ProductSearchIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new ProductSearchIndex(null, true);
+		index.index(product(1L, "Điện thoại Samsung Galaxy", "Màn hình lớn", Category.PHONES));
+		index.index(product(2L, "Ốp lưng điện thoại", "Phụ kiện cho Samsung", Category.OTHERS));
+		index.index(product(3L, "Áo thun", "Áo cotton", Category.CLOTHING));
+	}
+
+	@Test
+	void matchesWithoutAccents() {
+		assertEquals(List.of(1L, 2L), index.search("dien thoai"));
+	}
+
+	@Test
+	void ranksNameMatchesAboveDescriptionMatches() {
+		assertEquals(List.of(1L, 2L), index.search("samsung"));
+	}
+
+	@Test
+	void matchesLastKeywordAsPrefix() {
+		assertEquals(List.of(1L), index.search("samsung gal"));
+		assertEquals(List.of(3L), index.search("clo"));
+	}
+
+	@Test
+	void removesProductsFromTheIndex() {
+		index.remove(1L);
+		assertEquals(List.of(2L), index.search("điện thoại"));
+
+		index.index(product(2L, "Tai nghe", null, Category.ELECTRONICS));
+		assertTrue(index.search("dien thoai").isEmpty());
+	}
+
+	private Product product(Long id, String name, String description, Category category) {
+		return Product.builder()
+				.id(id)
+				.name(name)
+				.description(description)
+				.category(category)
+				.build();
+	}
+}